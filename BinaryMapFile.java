@@ -0,0 +1,276 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * Reads and writes the compact binary map format. Only the non-empty cells are stored,
+ * which keeps sparse maps small and fast to load. The file layout is:
+ * - Header: magic "SMAP", format version, rows, cols and the number of non-empty cells
+ * - Gaps: for each non-empty cell in row-major order, the run of empty cells before it (varint)
+ * - Mine plane: one bit per non-empty cell, set if the cell is a mine
+ * - Crystal plane: one bit per non-empty cell, set if the cell is the crystal
+ * - Shields: one nibble per remaining cell holding the shield duration (1-9), or 0 when
+ *   the cell holds some other character
+ * - Other cells: the characters of the cells whose shield nibble is 0
+ */
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+public class BinaryMapFile {
+    private static final int MAGIC = 0x534D4150;
+    private static final byte VERSION = 1;
+    private static final int OTHER_CELL = 0;
+    private static final int VARINT_MASK = 0x7F;
+    private static final int VARINT_MORE = 0x80;
+    private static final int VARINT_SHIFT = 7;
+    private static final int HEADER_BYTES = Integer.BYTES + Byte.BYTES + 3 * Integer.BYTES;
+    private static final int MAX_SHIELD = Game.MAX_SHIELD_CELL - Game.MIN_SHIELD_CELL + 1;
+
+    /**
+     * Checks if a file starts with the binary map header.
+     *
+     * @param filename The path to the map file
+     * @return true if the file uses the binary map format
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isBinary(String filename) throws IOException {
+        try (InputStream in = Files.newInputStream(Paths.get(filename))) {
+            byte[] header = in.readNBytes(Integer.BYTES);
+            return header.length == Integer.BYTES && ByteBuffer.wrap(header).getInt() == MAGIC;
+        }
+    }
+
+    /**
+     * Reads a binary map file.
+     *
+     * @param filename The path to the map file
+     * @return A new GameMap with the file contents
+     * @throws IOException if the file cannot be read or is not a valid binary map, including
+     *         a truncated file or one whose lengths do not fit its rows and columns
+     */
+    public static GameMap read(String filename) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(Paths.get(filename)));
+        if (in.remaining() < HEADER_BYTES || in.getInt() != MAGIC || in.get() != VERSION) {
+            throw new IOException(filename);
+        }
+        int rows = in.getInt();
+        int cols = in.getInt();
+        int count = in.getInt();
+        long size = (long) rows * cols;
+        // Every non-empty cell takes at least one byte for its gap
+        if (rows < 1 || cols < 1 || count < 0 || count > size || count > in.remaining()) {
+            throw new IOException(filename);
+        }
+
+        long[] cells = new long[count];
+        long cursor = 0;
+        for (int i = 0; i < count; i++) {
+            long gap = readVarLong(in, filename);
+            if (gap < 0 || gap >= size - cursor) {
+                throw new IOException(filename);
+            }
+            cursor += gap;
+            cells[i] = cursor++;
+        }
+        byte[] mines = readPlane(in, count, filename);
+        byte[] crystals = readPlane(in, count, filename);
+
+        char[][] layout = new char[rows][cols];
+        for (char[] row : layout) {
+            Arrays.fill(row, Game.EMPTY_CELL);
+        }
+        int nibbles = 0;
+        byte shieldByte = 0;
+        for (int i = 0; i < count; i++) {
+            char cell;
+            if (isSet(mines, i)) {
+                cell = Game.MINE_CELL;
+            } else if (isSet(crystals, i)) {
+                cell = Game.CRYSTAL_CELL;
+            } else {
+                if ((nibbles & 1) == 0) {
+                    require(in, Byte.BYTES, filename);
+                    shieldByte = in.get();
+                }
+                int shield = (nibbles & 1) == 0 ? shieldByte & 0x0F : (shieldByte >>> 4) & 0x0F;
+                nibbles++;
+                if (shield > MAX_SHIELD) {
+                    throw new IOException(filename);
+                }
+                cell = shield == OTHER_CELL ? Character.MIN_VALUE : (char) (Game.MIN_SHIELD_CELL + shield - 1);
+            }
+            layout[(int) (cells[i] / cols)][(int) (cells[i] % cols)] = cell;
+        }
+        for (int i = 0; i < count; i++) {
+            int row = (int) (cells[i] / cols);
+            int col = (int) (cells[i] % cols);
+            if (layout[row][col] == Character.MIN_VALUE) {
+                require(in, Character.BYTES, filename);
+                layout[row][col] = in.getChar();
+            }
+        }
+        return GameMap.adopt(rows, cols, layout);
+    }
+
+    /**
+     * Writes a map in the binary format.
+     *
+     * @param map The map to write
+     * @param filename The path of the file to create or overwrite
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(GameMap map, String filename) throws IOException {
+        int rows = map.getRows();
+        int cols = map.getCols();
+        int count = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (map.getCell(i, j) != Game.EMPTY_CELL) {
+                    count++;
+                }
+            }
+        }
+
+        byte[] mines = new byte[planeBytes(count)];
+        byte[] crystals = new byte[planeBytes(count)];
+        byte[] shields = new byte[planeBytes(count * 4)];
+        StringBuilder others = new StringBuilder();
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(filename)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(rows);
+            out.writeInt(cols);
+            out.writeInt(count);
+
+            long gap = 0;
+            int index = 0;
+            int nibbles = 0;
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    char cell = map.getCell(i, j);
+                    if (cell == Game.EMPTY_CELL) {
+                        gap++;
+                        continue;
+                    }
+                    writeVarLong(out, gap);
+                    gap = 0;
+                    if (cell == Game.MINE_CELL) {
+                        mines[index >>> 3] |= (byte) (1 << (index & 7));
+                    } else if (cell == Game.CRYSTAL_CELL) {
+                        crystals[index >>> 3] |= (byte) (1 << (index & 7));
+                    } else {
+                        int shield = OTHER_CELL;
+                        if (cell >= Game.MIN_SHIELD_CELL && cell <= Game.MAX_SHIELD_CELL) {
+                            shield = cell - Game.MIN_SHIELD_CELL + 1;
+                        } else {
+                            others.append(cell);
+                        }
+                        shields[nibbles >>> 1] |= (byte) (shield << ((nibbles & 1) * 4));
+                        nibbles++;
+                    }
+                    index++;
+                }
+            }
+            out.write(mines);
+            out.write(crystals);
+            out.write(shields, 0, (nibbles + 1) >>> 1);
+            out.writeChars(others.toString());
+        }
+    }
+
+    /**
+     * Reads a bit plane with one bit per non-empty cell.
+     *
+     * @param in The buffer to read from
+     * @param count The number of non-empty cells
+     * @param filename The path to the map file, for the error
+     * @return The bytes of the plane
+     * @throws IOException if the file ends before the plane does
+     */
+    private static byte[] readPlane(ByteBuffer in, int count, String filename) throws IOException {
+        byte[] plane = new byte[planeBytes(count)];
+        require(in, plane.length, filename);
+        in.get(plane);
+        return plane;
+    }
+
+    /**
+     * Checks that a number of bytes is left to read.
+     *
+     * @param in The buffer to read from
+     * @param bytes The number of bytes about to be read
+     * @param filename The path to the map file, for the error
+     * @throws IOException if fewer bytes are left
+     */
+    private static void require(ByteBuffer in, int bytes, String filename) throws IOException {
+        if (in.remaining() < bytes) {
+            throw new IOException(filename);
+        }
+    }
+
+    /**
+     * Gets the number of bytes needed to hold a number of bits.
+     *
+     * @param bits The number of bits
+     * @return The number of bytes
+     */
+    private static int planeBytes(int bits) {
+        return (bits + 7) >>> 3;
+    }
+
+    /**
+     * Checks if a bit of a plane is set.
+     *
+     * @param plane The bytes of the plane
+     * @param index The bit index
+     * @return true if the bit is set
+     */
+    private static boolean isSet(byte[] plane, int index) {
+        return (plane[index >>> 3] & (1 << (index & 7))) != 0;
+    }
+
+    /**
+     * Writes a non-negative number using 7 bits per byte, lowest bits first.
+     *
+     * @param out The stream to write to
+     * @param value The number to write
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~VARINT_MASK) != 0) {
+            out.writeByte((int) (value & VARINT_MASK) | VARINT_MORE);
+            value >>>= VARINT_SHIFT;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Reads a number written by writeVarLong.
+     *
+     * @param in The buffer to read from
+     * @param filename The path to the map file, for the error
+     * @return The number read
+     * @throws IOException if the file ends inside the number or the number has over 64 bits
+     */
+    private static long readVarLong(ByteBuffer in, String filename) throws IOException {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift >= Long.SIZE) {
+                throw new IOException(filename);
+            }
+            require(in, Byte.BYTES, filename);
+            b = in.get();
+            value |= (long) (b & VARINT_MASK) << shift;
+            shift += VARINT_SHIFT;
+        } while ((b & VARINT_MORE) != 0);
+        return value;
+    }
+}
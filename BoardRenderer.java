@@ -0,0 +1,284 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * Draws a game board on an ANSI terminal for spectators. Only a viewport window of the
+ * board is drawn, so huge boards can be followed one region at a time. After the first
+ * full frame, each frame only rewrites the cells that changed. The renderer listens to the
+ * changes of the game: cleared cells in view are marked dirty, and a changed player marks
+ * the cells they left and entered, found through an index of the cell of every player in
+ * view. A frame therefore costs time and output proportional to the changes in view, not
+ * to the size of the board or the number of players.
+ *
+ * Active players are drawn as the letter of their index ('a' for the first player);
+ * eliminated players are not drawn. Any number of renderers may follow the same game.
+ * Resetting the game removes its listeners, so renderers must be created again.
+ */
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+public class BoardRenderer {
+    private static final String ESC = "\u001B[";
+    private static final String CLEAR_SCREEN = ESC + "2J";
+    private static final String PLAYER_MARKERS = "abcdefghijklmnopqrstuvwxyz";
+    private static final long NOWHERE = -1L;
+    private static final int NO_CURSOR = -1;
+
+    private final Game game;
+    private final ChangeListener listener;
+    private final Map<Player, Integer> slots;
+    private final Map<Long, Integer> occupants;
+    private final CellSet dirtyCells;
+    private int top;
+    private int left;
+    private int height;
+    private int width;
+    private long[] drawnCells;
+    private boolean needsFullFrame;
+    private int cursorRow;
+    private int cursorCol;
+
+    /**
+     * Creates a renderer for a game and starts listening to its changes.
+     *
+     * @param game The game to draw
+     * @param top The first row of the viewport (1-based)
+     * @param left The first column of the viewport (1-based)
+     * @param height The number of rows of the viewport
+     * @param width The number of columns of the viewport
+     */
+    public BoardRenderer(Game game, int top, int left, int height, int width) {
+        this.game = game;
+        this.listener = this::recordChanges;
+        this.slots = new IdentityHashMap<>();
+        this.occupants = new HashMap<>();
+        this.dirtyCells = new CellSet();
+        this.drawnCells = new long[0];
+        game.addChangeListener(listener);
+        setViewport(top, left, height, width);
+    }
+
+    /**
+     * Stops listening to the game. The renderer must not be used afterwards.
+     */
+    public void detach() {
+        game.removeChangeListener(listener);
+    }
+
+    /**
+     * Moves or resizes the viewport. It is clamped to the board, and the next frame is
+     * drawn in full.
+     *
+     * @param top The first row of the viewport (1-based)
+     * @param left The first column of the viewport (1-based)
+     * @param height The number of rows of the viewport
+     * @param width The number of columns of the viewport
+     */
+    public void setViewport(int top, int left, int height, int width) {
+        this.top = Math.max(1, Math.min(top, game.getRows()));
+        this.left = Math.max(1, Math.min(left, game.getCols()));
+        this.height = Math.max(0, Math.min(height, game.getRows() - this.top + 1));
+        this.width = Math.max(0, Math.min(width, game.getCols() - this.left + 1));
+        this.needsFullFrame = true;
+    }
+
+    /**
+     * Writes the next frame to a stream and flushes it: the whole viewport the first time
+     * and after the viewport changes, only the changes otherwise.
+     *
+     * @param out The terminal stream
+     * @return The number of cells written
+     */
+    public int writeFrame(PrintStream out) {
+        StringBuilder frame = new StringBuilder();
+        int cells = needsFullFrame ? renderFull(frame) : renderChanges(frame);
+        out.print(frame);
+        out.flush();
+        return cells;
+    }
+
+    /**
+     * Draws the whole viewport, clearing the screen first.
+     *
+     * @param out The buffer receiving the ANSI output
+     * @return The number of cells written
+     */
+    public int renderFull(StringBuilder out) {
+        out.append(CLEAR_SCREEN);
+        for (int i = 0; i < height; i++) {
+            moveCursor(out, i + 1, 1);
+            for (int j = 0; j < width; j++) {
+                out.append(game.getCell(new Position(top + i, left + j)));
+            }
+        }
+        cursorRow = NO_CURSOR;
+        slots.clear();
+        occupants.clear();
+        drawnCells = new long[0];
+        addNewPlayers();
+        dirtyCells.clear();
+        for (long cell : drawnCells) {
+            if (cell != NOWHERE) {
+                drawCell(out, cell);
+            }
+        }
+        needsFullFrame = false;
+        return height * width;
+    }
+
+    /**
+     * Draws the cells of the viewport that changed since the last frame. Cells are drawn
+     * in row order, and the cursor is only moved when the next cell is not the one right
+     * after the last cell drawn.
+     *
+     * @param out The buffer receiving the ANSI output
+     * @return The number of cells written
+     */
+    public int renderChanges(StringBuilder out) {
+        if (needsFullFrame) {
+            return renderFull(out);
+        }
+        addNewPlayers();
+        long[] dirty = dirtyCells.toArray();
+        dirtyCells.clear();
+        Arrays.sort(dirty);
+        cursorRow = NO_CURSOR;
+        for (long cell : dirty) {
+            drawCell(out, cell);
+        }
+        return dirty.length;
+    }
+
+    /**
+     * Records the changes of a turn of the game: every cleared cell in view, and the cells
+     * left and entered by every changed player.
+     *
+     * @param changes The changes of the turn
+     */
+    private void recordChanges(ChangeSet changes) {
+        for (int i = 0; i < changes.getClearedCellCount(); i++) {
+            long cell = changes.getClearedCell(i);
+            if (inView(cell)) {
+                dirtyCells.add(cell);
+            }
+        }
+        for (int i = 0; i < changes.getPlayerCount(); i++) {
+            Integer slot = slots.get(changes.getPlayer(i));
+            if (slot != null) {
+                placePlayer(slot);
+            }
+        }
+    }
+
+    /**
+     * Starts drawing the players added to the game since the last frame.
+     */
+    private void addNewPlayers() {
+        int known = drawnCells.length;
+        int count = game.getPlayerCount();
+        if (count == known) {
+            return;
+        }
+        drawnCells = Arrays.copyOf(drawnCells, count);
+        for (int slot = known; slot < count; slot++) {
+            drawnCells[slot] = NOWHERE;
+            slots.put(game.getPlayer(slot), slot);
+            placePlayer(slot);
+        }
+    }
+
+    /**
+     * Updates the drawn cell of a player, marking the cells they left and entered as
+     * dirty. Eliminated players and players out of view are not drawn anywhere.
+     *
+     * @param slot The index of the player
+     */
+    private void placePlayer(int slot) {
+        Player player = game.getPlayer(slot);
+        long cell = cellIndex(player.getPosition());
+        long drawn = !player.isEliminated() && inView(cell) ? cell : NOWHERE;
+        long before = drawnCells[slot];
+        if (drawn == before) {
+            return;
+        }
+        if (before != NOWHERE) {
+            occupants.remove(before, slot);
+            dirtyCells.add(before);
+        }
+        if (drawn != NOWHERE) {
+            occupants.put(drawn, slot);
+            dirtyCells.add(drawn);
+        }
+        drawnCells[slot] = drawn;
+    }
+
+    /**
+     * Writes one cell of the viewport, moving the cursor to it first if needed.
+     *
+     * @param out The buffer receiving the ANSI output
+     * @param cell The index of the cell (row * cols + col, 0-based)
+     */
+    private void drawCell(StringBuilder out, long cell) {
+        int row = (int) (cell / game.getCols()) + 1;
+        int col = (int) (cell % game.getCols()) + 1;
+        int screenRow = row - top + 1;
+        int screenCol = col - left + 1;
+        if (screenRow != cursorRow || screenCol != cursorCol) {
+            moveCursor(out, screenRow, screenCol);
+        }
+        out.append(symbolAt(cell, row, col));
+        cursorRow = screenRow;
+        cursorCol = screenCol + 1;
+    }
+
+    /**
+     * Writes the ANSI sequence moving the cursor to a screen position.
+     *
+     * @param out The buffer receiving the ANSI output
+     * @param row The screen row (1-based)
+     * @param col The screen column (1-based)
+     */
+    private static void moveCursor(StringBuilder out, int row, int col) {
+        out.append(ESC).append(row).append(';').append(col).append('H');
+    }
+
+    /**
+     * Gets the symbol shown for a cell: the marker of the player standing on it, if any,
+     * or the cell's content.
+     *
+     * @param cell The index of the cell
+     * @param row The row of the cell (1-based)
+     * @param col The column of the cell (1-based)
+     * @return The character to draw
+     */
+    private char symbolAt(long cell, int row, int col) {
+        Integer slot = occupants.get(cell);
+        if (slot != null) {
+            return PLAYER_MARKERS.charAt(slot % PLAYER_MARKERS.length());
+        }
+        return game.getCell(new Position(row, col));
+    }
+
+    /**
+     * Checks if a cell lies inside the viewport.
+     *
+     * @param cell The index of the cell (row * cols + col, 0-based)
+     * @return true if the cell is in view
+     */
+    private boolean inView(long cell) {
+        long row = cell / game.getCols() + 1;
+        long col = cell % game.getCols() + 1;
+        return row >= top && row < top + height && col >= left && col < left + width;
+    }
+
+    /**
+     * Converts a position into the index of its cell.
+     *
+     * @param pos The position (1-based coordinates)
+     * @return The cell index, (row - 1) * cols + (col - 1)
+     */
+    private long cellIndex(Position pos) {
+        return (long) (pos.getRow() - 1) * game.getCols() + (pos.getColumn() - 1);
+    }
+}
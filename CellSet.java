@@ -0,0 +1,185 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * A compact set of cell indexes (row * cols + col) using open addressing with linear
+ * probing over a primitive array. Memory grows with the number of cells stored rather
+ * than with the size of the grid, which makes it suitable for per-game changes.
+ */
+import java.util.Arrays;
+
+public class CellSet {
+    private static final long EMPTY_SLOT = -1L;
+    private static final int INITIAL_CAPACITY = 8;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private long[] slots;
+    private int size;
+    private int shift;
+
+    public CellSet() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates a copy of another set.
+     *
+     * @param other The set to copy
+     */
+    public CellSet(CellSet other) {
+        this.slots = other.slots.clone();
+        this.size = other.size;
+        this.shift = other.shift;
+    }
+
+    /**
+     * Adds a cell index to the set.
+     *
+     * @param cell The non-negative cell index to add
+     * @return true if the cell was not already in the set
+     */
+    public boolean add(long cell) {
+        int slot = findSlot(cell);
+        if (slots[slot] == cell) {
+            return false;
+        }
+        slots[slot] = cell;
+        size++;
+        if (size * 2 > slots.length) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * Removes a cell index from the set. The cells after it in the same probe run are
+     * shifted back, so lookups never need deletion markers.
+     *
+     * @param cell The non-negative cell index to remove
+     * @return true if the cell was in the set
+     */
+    public boolean remove(long cell) {
+        int slot = findSlot(cell);
+        if (slots[slot] != cell) {
+            return false;
+        }
+        int mask = slots.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; slots[next] != EMPTY_SLOT; next = (next + 1) & mask) {
+            int home = homeSlot(slots[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                slots[hole] = slots[next];
+                hole = next;
+            }
+        }
+        slots[hole] = EMPTY_SLOT;
+        size--;
+        return true;
+    }
+
+    /**
+     * Checks if a cell index is in the set.
+     *
+     * @param cell The non-negative cell index to look for
+     * @return true if the cell is in the set
+     */
+    public boolean contains(long cell) {
+        return size > 0 && slots[findSlot(cell)] == cell;
+    }
+
+    /**
+     * Gets the number of cells in the set.
+     *
+     * @return The number of cells stored
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every cell from the set, keeping the table allocated at its current capacity.
+     */
+    public void clear() {
+        Arrays.fill(slots, EMPTY_SLOT);
+        size = 0;
+    }
+
+    /**
+     * Replaces the contents of the set with a copy of another set, reusing this set's
+     * table when it has the same capacity.
+     *
+     * @param other The set to copy
+     */
+    public void copyFrom(CellSet other) {
+        if (slots.length == other.slots.length) {
+            System.arraycopy(other.slots, 0, slots, 0, slots.length);
+        } else {
+            slots = other.slots.clone();
+        }
+        size = other.size;
+        shift = other.shift;
+    }
+
+    /**
+     * Copies the cells of the set into a new array, in no particular order.
+     *
+     * @return An array with every cell index in the set
+     */
+    public long[] toArray() {
+        long[] result = new long[size];
+        int count = 0;
+        for (long cell : slots) {
+            if (cell != EMPTY_SLOT) {
+                result[count++] = cell;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the slot holding a cell, or the empty slot where it would be inserted.
+     *
+     * @param cell The cell index to look for
+     * @return The slot index
+     */
+    private int findSlot(long cell) {
+        int mask = slots.length - 1;
+        int slot = homeSlot(cell);
+        while (slots[slot] != EMPTY_SLOT && slots[slot] != cell) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Gets the slot where the probe for a cell starts.
+     *
+     * @param cell The cell index
+     * @return The first slot to look at
+     */
+    private int homeSlot(long cell) {
+        return (int) ((cell * HASH_MULTIPLIER) >>> shift);
+    }
+
+    /**
+     * Doubles the capacity of the table and reinserts every cell.
+     */
+    private void grow() {
+        long[] old = slots;
+        allocate(old.length * 2);
+        for (long cell : old) {
+            if (cell != EMPTY_SLOT) {
+                slots[findSlot(cell)] = cell;
+            }
+        }
+    }
+
+    /**
+     * Allocates an empty table with the given power-of-two capacity.
+     *
+     * @param capacity The number of slots
+     */
+    private void allocate(int capacity) {
+        slots = new long[capacity];
+        Arrays.fill(slots, EMPTY_SLOT);
+        shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+    }
+}
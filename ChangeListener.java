@@ -0,0 +1,17 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * Receives the changes made to a grid and its players, one coalesced set at a time.
+ *
+ * @see ChangeSet
+ */
+
+public interface ChangeListener {
+    /**
+     * Called once per flush of a non-empty change set, usually once per turn. The set is
+     * cleared and reused after every listener has returned, so it must not be kept, and
+     * the grid and players must not be changed from here.
+     *
+     * @param changes The cells cleared and the players changed since the last flush
+     */
+    void onChanges(ChangeSet changes);
+}
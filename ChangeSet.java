@@ -0,0 +1,174 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * Collects the changes made to a grid and its players and hands them to listeners in
+ * one compact batch. A Grid reports every cell it clears and a Player reports its moves,
+ * shield pickups, elimination and crystal pickup, but only while a change set is attached
+ * to them; without one, a mutation costs a single null check.
+ *
+ * Changes are coalesced until flush: every cell appears once, and every player appears
+ * once with the CHANGE_ flags of everything that happened to them. Game attaches a change
+ * set when the first listener is added and flushes it at the end of every turn. The
+ * arrays are kept between flushes, so steady-state turns allocate nothing. Not thread-safe.
+ */
+import java.util.Arrays;
+
+public class ChangeSet {
+    /**
+     * Flags of the changes made to a player.
+     */
+    public static final int CHANGE_MOVED = 1;
+    public static final int CHANGE_SHIELD = 2;
+    public static final int CHANGE_ELIMINATED = 4;
+    public static final int CHANGE_CRYSTAL = 8;
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private ChangeListener[] listeners;
+    private long[] clearedCells;
+    private int clearedCount;
+    private Player[] players;
+    private int[] changes;
+    private int playerCount;
+
+    public ChangeSet() {
+        this.listeners = new ChangeListener[0];
+        this.clearedCells = new long[INITIAL_CAPACITY];
+        this.players = new Player[INITIAL_CAPACITY];
+        this.changes = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Adds a listener that receives every flushed set.
+     *
+     * @param listener The listener to add
+     */
+    public void addListener(ChangeListener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    /**
+     * Removes a listener. Does nothing if it was not added.
+     *
+     * @param listener The listener to remove
+     */
+    public void removeListener(ChangeListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                ChangeListener[] kept = new ChangeListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, kept, 0, i);
+                System.arraycopy(listeners, i + 1, kept, i, kept.length - i);
+                listeners = kept;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Checks if any listener is registered.
+     *
+     * @return true if there is at least one listener
+     */
+    public boolean hasListeners() {
+        return listeners.length > 0;
+    }
+
+    /**
+     * Records a cell cleared by a grid. Grids report each cell only the first time it is
+     * cleared.
+     *
+     * @param cell The index of the cell, row * cols + col (0-based)
+     */
+    public void cellCleared(long cell) {
+        if (clearedCount == clearedCells.length) {
+            clearedCells = Arrays.copyOf(clearedCells, clearedCount * 2);
+        }
+        clearedCells[clearedCount++] = cell;
+    }
+
+    /**
+     * Records a change made to a player, merging it with the earlier changes of the same
+     * player since the last flush.
+     *
+     * @param player The changed player
+     * @param change One of the CHANGE_ flags
+     */
+    public void playerChanged(Player player, int change) {
+        for (int i = 0; i < playerCount; i++) {
+            if (players[i] == player) {
+                changes[i] |= change;
+                return;
+            }
+        }
+        if (playerCount == players.length) {
+            players = Arrays.copyOf(players, playerCount * 2);
+            changes = Arrays.copyOf(changes, playerCount * 2);
+        }
+        players[playerCount] = player;
+        changes[playerCount] = change;
+        playerCount++;
+    }
+
+    /**
+     * Hands the recorded changes to every listener, if there are any, and starts a new set.
+     */
+    public void flush() {
+        if (clearedCount == 0 && playerCount == 0) {
+            return;
+        }
+        for (ChangeListener listener : listeners) {
+            listener.onChanges(this);
+        }
+        clearedCount = 0;
+        Arrays.fill(players, 0, playerCount, null);
+        playerCount = 0;
+    }
+
+    /**
+     * Gets the number of cells cleared since the last flush.
+     *
+     * @return The cleared cell count
+     */
+    public int getClearedCellCount() {
+        return clearedCount;
+    }
+
+    /**
+     * Gets a cell cleared since the last flush, in the order they were cleared.
+     *
+     * @param index The index of the change, from 0 to getClearedCellCount() - 1
+     * @return The index of the cell, row * cols + col (0-based)
+     */
+    public long getClearedCell(int index) {
+        return clearedCells[index];
+    }
+
+    /**
+     * Gets the number of players changed since the last flush.
+     *
+     * @return The changed player count
+     */
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    /**
+     * Gets a player changed since the last flush, in the order of their first change.
+     *
+     * @param index The index of the change, from 0 to getPlayerCount() - 1
+     * @return The changed player
+     */
+    public Player getPlayer(int index) {
+        return players[index];
+    }
+
+    /**
+     * Gets what happened to a changed player since the last flush.
+     *
+     * @param index The index of the change, from 0 to getPlayerCount() - 1
+     * @return The CHANGE_ flags of the player, combined with a bitwise or
+     */
+    public int getChanges(int index) {
+        return changes[index];
+    }
+}
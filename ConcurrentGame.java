@@ -0,0 +1,368 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * A real-time variant of Game where players have no turns: any number of threads may move
+ * any players at the same time on one shared map. The board is divided into square
+ * regions, and every region belongs to one of a fixed number of lock stripes. A stripe
+ * guards the cleared cells and the occupied cells of its regions.
+ *
+ * A move only locks the stripes of its source and destination cells, always in increasing
+ * stripe order, so moves in different parts of the board run in parallel and can never
+ * deadlock. Clearing a mine or a shield happens under the destination lock together with
+ * the move, and the crystal win is decided by a single compare-and-set, so exactly one
+ * player can win. Each player is also locked for the duration of their own moves, before
+ * any stripe, so a player moved from two threads moves one step at a time.
+ *
+ * Move results use the MOVE_ constants of Game. Shields last for a number of moves of the
+ * player holding them, as turns do in Game.
+ */
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ConcurrentGame {
+    /**
+     * Result of a move that was not made because the game is over or the player was
+     * eliminated.
+     */
+    public static final int MOVE_REJECTED = -1;
+
+    private static final int REGION_SHIFT = 5;
+    private static final int DEFAULT_STRIPES = 1024;
+
+    private final GameMap map;
+    private final int rows;
+    private final int cols;
+    private final int regionCols;
+    private final Stripe[] stripes;
+    private final AtomicReferenceArray<Player> players;
+    private final Object registration;
+    private final AtomicInteger playerCount;
+    private final AtomicInteger activePlayers;
+    private final AtomicReference<Player> crystalWinner;
+    private volatile boolean isGameOver;
+
+    /**
+     * Creates a game with the default number of lock stripes.
+     *
+     * @param map The map to play on
+     * @param maxPlayers The maximum number of players
+     */
+    public ConcurrentGame(GameMap map, int maxPlayers) {
+        this(map, maxPlayers, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Creates a game.
+     *
+     * @param map The map to play on
+     * @param maxPlayers The maximum number of players
+     * @param stripeCount The number of lock stripes; 1 makes every move take the same lock
+     */
+    public ConcurrentGame(GameMap map, int maxPlayers, int stripeCount) {
+        this.map = map;
+        this.rows = map.getRows();
+        this.cols = map.getCols();
+        this.regionCols = ((cols - 1) >> REGION_SHIFT) + 1;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.players = new AtomicReferenceArray<>(maxPlayers);
+        this.registration = new Object();
+        this.playerCount = new AtomicInteger();
+        this.activePlayers = new AtomicInteger();
+        this.crystalWinner = new AtomicReference<>();
+    }
+
+    /**
+     * Adds a player on an empty, unoccupied cell. Safe to call while other players move.
+     * The player is stored before the player count grows, so any thread that sees the new
+     * count also sees the fully built player in its slot.
+     *
+     * @param row The row coordinate for the new player
+     * @param col The column coordinate for the new player
+     * @param name The name of the new player
+     * @return The index of the new player, or -1 if the position is not valid or the game is full
+     */
+    public int addPlayer(int row, int col, String name) {
+        Position pos = new Position(row, col);
+        if (!pos.isValidPosition(rows, cols)) {
+            return -1;
+        }
+        long cell = cellIndex(pos);
+        Stripe stripe = stripes[stripeOf(pos)];
+        stripe.lock.lock();
+        try {
+            if (cellAt(stripe, pos, cell) != Game.EMPTY_CELL || stripe.occupied.contains(cell)) {
+                return -1;
+            }
+            int slot;
+            synchronized (registration) {
+                slot = playerCount.get();
+                if (slot == players.length()) {
+                    return -1;
+                }
+                players.set(slot, new Player(name, row, col));
+                playerCount.set(slot + 1);
+            }
+            stripe.occupied.add(cell);
+            activePlayers.incrementAndGet();
+            return slot;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Moves a player one cell, with the same outcomes as Game.movePlayer.
+     *
+     * @param slot The index of the player
+     * @param direction The direction to move ("up", "down", "left", "right")
+     * @return An integer constant indicating the move result, or MOVE_REJECTED
+     */
+    public int movePlayer(int slot, String direction) {
+        Player player = players.get(slot);
+        synchronized (player) {
+            if (isGameOver || player.isEliminated()) {
+                return MOVE_REJECTED;
+            }
+            Position from = player.getPosition();
+            Position to = from.calculateNewPosition(direction);
+            if (!to.isValidPosition(rows, cols)) {
+                player.finishTurn();
+                return Game.MOVE_OUT_OF_BOUNDS;
+            }
+
+            Stripe source = stripes[stripeOf(from)];
+            Stripe target = stripes[stripeOf(to)];
+            Stripe first = stripeOf(from) <= stripeOf(to) ? source : target;
+            Stripe second = first == source ? target : source;
+            first.lock.lock();
+            second.lock.lock();
+            try {
+                return moveLocked(player, from, to, source, target);
+            } finally {
+                second.lock.unlock();
+                first.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Counts the mines around a player, locking the stripes of the surrounding cells.
+     *
+     * @param slot The index of the player
+     * @return The number of mines in the adjacent cells, or MOVE_REJECTED if the game is
+     *         over or the player was eliminated
+     */
+    public int detect(int slot) {
+        Player player = players.get(slot);
+        synchronized (player) {
+            if (isGameOver || player.isEliminated()) {
+                return MOVE_REJECTED;
+            }
+            Position center = player.getPosition();
+            int[] locked = stripesAround(center);
+            for (int index : locked) {
+                stripes[index].lock.lock();
+            }
+            try {
+                int count = 0;
+                for (int i = center.getRow() - 1; i <= center.getRow() + 1; i++) {
+                    for (int j = center.getColumn() - 1; j <= center.getColumn() + 1; j++) {
+                        Position pos = new Position(i, j);
+                        if (!pos.equals(center) && pos.isValidPosition(rows, cols)
+                                && cellAt(stripes[stripeOf(pos)], pos, cellIndex(pos)) == Game.MINE_CELL) {
+                            count++;
+                        }
+                    }
+                }
+                player.finishTurn();
+                return count;
+            } finally {
+                for (int i = locked.length - 1; i >= 0; i--) {
+                    stripes[locked[i]].lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Carries out a move while holding the locks of both cells.
+     *
+     * @param player The moving player
+     * @param from The current position of the player
+     * @param to The destination
+     * @param source The stripe of the current position
+     * @param target The stripe of the destination
+     * @return An integer constant indicating the move result
+     */
+    private int moveLocked(Player player, Position from, Position to, Stripe source, Stripe target) {
+        if (isGameOver) {
+            return MOVE_REJECTED;
+        }
+        long destination = cellIndex(to);
+        if (target.occupied.contains(destination)) {
+            player.finishTurn();
+            return Game.MOVE_POSITION_OCCUPIED;
+        }
+
+        char cell = cellAt(target, to, destination);
+        int result = Game.MOVE_SUCCESS;
+        if (cell == Game.MINE_CELL) {
+            target.cleared.add(destination);
+            if (player.isProtected()) {
+                result = Game.MOVE_SUCCESS_PROTECTED;
+            } else {
+                player.eliminate();
+                result = Game.MOVE_MINE_HIT;
+            }
+        } else if (cell >= Game.MIN_SHIELD_CELL && cell <= Game.MAX_SHIELD_CELL) {
+            target.cleared.add(destination);
+            player.addShield(Character.getNumericValue(cell));
+            result = Game.MOVE_SHIELD_PICKUP;
+        } else if (cell == Game.CRYSTAL_CELL) {
+            if (!crystalWinner.compareAndSet(null, player)) {
+                return MOVE_REJECTED;
+            }
+            player.collectCrystal();
+            isGameOver = true;
+            result = Game.MOVE_CRYSTAL_FOUND;
+        }
+
+        source.occupied.remove(cellIndex(from));
+        player.moveTo(to);
+        if (result == Game.MOVE_MINE_HIT) {
+            if (activePlayers.decrementAndGet() == 1) {
+                isGameOver = true;
+            }
+        } else {
+            target.occupied.add(destination);
+        }
+        player.finishTurn();
+        return result;
+    }
+
+    /**
+     * Gets the content of a cell. Called with the lock of the cell's stripe held.
+     *
+     * @param stripe The stripe of the cell
+     * @param pos The position of the cell (1-based coordinates)
+     * @param cell The index of the cell
+     * @return The character representing the cell's content
+     */
+    private char cellAt(Stripe stripe, Position pos, long cell) {
+        char content = map.getCell(pos.getRow() - 1, pos.getColumn() - 1);
+        if (content != Game.EMPTY_CELL && stripe.cleared.contains(cell)) {
+            return Game.EMPTY_CELL;
+        }
+        return content;
+    }
+
+    /**
+     * Gets the distinct stripes of the cells around a position, in increasing order.
+     *
+     * @param center The center position
+     * @return The stripe indexes to lock
+     */
+    private int[] stripesAround(Position center) {
+        int[] found = new int[9];
+        int count = 0;
+        for (int i = center.getRow() - 1; i <= center.getRow() + 1; i++) {
+            for (int j = center.getColumn() - 1; j <= center.getColumn() + 1; j++) {
+                Position pos = new Position(i, j);
+                if (pos.isValidPosition(rows, cols)) {
+                    found[count++] = stripeOf(pos);
+                }
+            }
+        }
+        Arrays.sort(found, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || found[i] != found[distinct - 1]) {
+                found[distinct++] = found[i];
+            }
+        }
+        return Arrays.copyOf(found, distinct);
+    }
+
+    /**
+     * Gets the stripe guarding the region of a position.
+     *
+     * @param pos The position (1-based coordinates)
+     * @return The stripe index
+     */
+    private int stripeOf(Position pos) {
+        long region = (long) ((pos.getRow() - 1) >> REGION_SHIFT) * regionCols
+                + ((pos.getColumn() - 1) >> REGION_SHIFT);
+        return (int) (region % stripes.length);
+    }
+
+    /**
+     * Converts a position into the index of its cell.
+     *
+     * @param pos The position (1-based coordinates)
+     * @return The cell index, (row - 1) * cols + (col - 1)
+     */
+    private long cellIndex(Position pos) {
+        return (long) (pos.getRow() - 1) * cols + (pos.getColumn() - 1);
+    }
+
+    /**
+     * Gets a player by the order in which they were added.
+     *
+     * @param slot The index of the player
+     * @return The Player object
+     */
+    public Player getPlayer(int slot) {
+        return players.get(slot);
+    }
+
+    /**
+     * Gets the number of players added to the game, including eliminated ones.
+     *
+     * @return The number of players
+     */
+    public int getPlayerCount() {
+        return playerCount.get();
+    }
+
+    /**
+     * Gets the number of players that are not eliminated.
+     *
+     * @return The number of active players
+     */
+    public int getActivePlayerCount() {
+        return activePlayers.get();
+    }
+
+    /**
+     * Checks if the game has ended, by the crystal or by a single player surviving.
+     *
+     * @return true if the game is over
+     */
+    public boolean isGameOver() {
+        return isGameOver;
+    }
+
+    /**
+     * Gets the player who collected the crystal.
+     *
+     * @return The winner, or null if nobody collected the crystal
+     */
+    public Player getCrystalWinner() {
+        return crystalWinner.get();
+    }
+
+    /**
+     * A lock with the cells it guards: the cells cleared and the cells occupied by active
+     * players in the regions of the stripe.
+     */
+    private static class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final CellSet cleared = new CellSet();
+        private final CellSet occupied = new CellSet();
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * Reads events from an EventRing at its own pace, in batches. Each consumer keeps its own
+ * sequence and is used by a single reader thread. When the writer laps the consumer, the
+ * policy decides what happens: POLICY_DROP detaches the consumer, POLICY_SKIP jumps it
+ * ahead to recent events and counts the ones it lost.
+ *
+ * @see EventRing
+ */
+import java.lang.invoke.VarHandle;
+
+public class EventConsumer {
+    public static final int POLICY_DROP = 0;
+    public static final int POLICY_SKIP = 1;
+
+    private final EventRing ring;
+    private final int policy;
+    private long sequence;
+    private long lost;
+    private boolean dropped;
+
+    EventConsumer(EventRing ring, long sequence, int policy) {
+        this.ring = ring;
+        this.sequence = sequence;
+        this.policy = policy;
+    }
+
+    /**
+     * Delivers the available events, up to a batch size, to a handler.
+     *
+     * @param handler The handler receiving the events
+     * @param maxBatch The maximum number of events to deliver
+     * @return The number of events delivered
+     */
+    public int poll(GameEventHandler handler, int maxBatch) {
+        if (dropped) {
+            return 0;
+        }
+        long cursor = ring.getCursor();
+        if (cursor - sequence + 1 > ring.getCapacity() - 1 && !handleOverrun(cursor)) {
+            return 0;
+        }
+        long last = Math.min(cursor, sequence + maxBatch - 1);
+        int delivered = 0;
+        while (sequence <= last) {
+            long typeAndPlayer = ring.read(sequence, 0);
+            long codeAndValue = ring.read(sequence, 1);
+            long rowAndCol = ring.read(sequence, 2);
+            VarHandle.acquireFence();
+            // The slot was reused if the writer reached the lap of this sequence meanwhile
+            if (ring.getCursor() + 1 >= sequence + ring.getCapacity()) {
+                if (!handleOverrun(ring.getCursor())) {
+                    return delivered;
+                }
+                last = Math.min(ring.getCursor(), sequence + maxBatch - 1 - delivered);
+                continue;
+            }
+            handler.onEvent(sequence,
+                    EventRing.high(typeAndPlayer), EventRing.low(typeAndPlayer),
+                    EventRing.high(codeAndValue), EventRing.high(rowAndCol),
+                    EventRing.low(rowAndCol), EventRing.low(codeAndValue));
+            sequence++;
+            delivered++;
+        }
+        return delivered;
+    }
+
+    /**
+     * Applies the lag policy after the writer lapped this consumer.
+     *
+     * @param cursor The current published cursor
+     * @return true if the consumer may go on reading
+     */
+    private boolean handleOverrun(long cursor) {
+        if (policy == POLICY_DROP) {
+            dropped = true;
+            return false;
+        }
+        // Leave half of the ring between the consumer and the writer
+        long resume = cursor + 1 - ring.getCapacity() / 2;
+        lost += resume - sequence;
+        sequence = resume;
+        return true;
+    }
+
+    /**
+     * Gets how many published events this consumer has not read yet.
+     *
+     * @return The lag in events
+     */
+    public long getLag() {
+        return ring.getCursor() + 1 - sequence;
+    }
+
+    /**
+     * Gets the number of events skipped under POLICY_SKIP.
+     *
+     * @return The number of lost events
+     */
+    public long getLost() {
+        return lost;
+    }
+
+    /**
+     * Checks if the consumer was detached under POLICY_DROP.
+     *
+     * @return true if the consumer was dropped
+     */
+    public boolean isDropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * A preallocated ring buffer carrying game events from the game thread to any number of
+ * spectators and analytics consumers. The game thread is the only writer and publishes
+ * without locks or allocation: every event is written into fixed-layout slots of a long
+ * array and made visible by advancing the published cursor. The writer never waits for
+ * consumers; each EventConsumer tracks its own sequence and detects by itself when it has
+ * fallen so far behind that its next events were overwritten.
+ *
+ * @see EventConsumer
+ */
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class EventRing {
+    public static final int EVENT_MOVE = 0;
+    public static final int EVENT_DETECT = 1;
+    public static final int EVENT_SKIP = 2;
+    public static final int EVENT_RANK = 3;
+
+    static final int STRIDE = 3;
+    private static final int HALF_SHIFT = 32;
+    private static final long LOW_MASK = 0xFFFFFFFFL;
+
+    private final long[] slots;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong cursor;
+    private long next;
+
+    /**
+     * Creates a ring holding a number of events rounded up to a power of two.
+     *
+     * @param capacity The minimum number of events kept before the oldest is overwritten
+     */
+    public EventRing(int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.slots = new long[this.capacity * STRIDE];
+        this.cursor = new AtomicLong(-1);
+        this.next = 0;
+    }
+
+    /**
+     * Publishes an event. Must only be called from the single writer thread.
+     *
+     * @param type The event type, one of the EVENT_* constants
+     * @param player The index of the player the event is about
+     * @param code The result code of the event
+     * @param row The row of the player after the event
+     * @param col The column of the player after the event
+     * @param value The value carried by the event
+     */
+    public void publish(int type, int player, int code, int row, int col, int value) {
+        long sequence = next++;
+        int base = (int) (sequence & mask) * STRIDE;
+        // Keep the slot writes after the previous cursor update, so a consumer that sees
+        // them also sees that the slot is being reused
+        VarHandle.storeStoreFence();
+        slots[base] = pack(type, player);
+        slots[base + 1] = pack(code, value);
+        slots[base + 2] = pack(row, col);
+        cursor.setRelease(sequence);
+    }
+
+    /**
+     * Creates a consumer starting with the next event to be published.
+     *
+     * @param policy What to do when the consumer falls behind, one of the
+     *               EventConsumer.POLICY_* constants
+     * @return The new consumer
+     */
+    public EventConsumer newConsumer(int policy) {
+        return new EventConsumer(this, cursor.getAcquire() + 1, policy);
+    }
+
+    /**
+     * Gets the sequence of the last published event.
+     *
+     * @return The published cursor, -1 before the first event
+     */
+    long getCursor() {
+        return cursor.getAcquire();
+    }
+
+    /**
+     * Gets the number of events the ring holds.
+     *
+     * @return The capacity
+     */
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Reads one word of the slot of an event. The caller must check afterwards that the
+     * slot was not reused while it was being read.
+     *
+     * @param sequence The sequence of the event
+     * @param word The word within the slot
+     * @return The packed word
+     */
+    long read(long sequence, int word) {
+        return slots[(int) (sequence & mask) * STRIDE + word];
+    }
+
+    /**
+     * Packs two ints into one long.
+     *
+     * @param high The int stored in the high half
+     * @param low The int stored in the low half
+     * @return The packed value
+     */
+    private static long pack(int high, int low) {
+        return ((long) high << HALF_SHIFT) | (low & LOW_MASK);
+    }
+
+    /**
+     * Gets the high half of a packed value.
+     *
+     * @param packed The packed value
+     * @return The int stored in the high half
+     */
+    static int high(long packed) {
+        return (int) (packed >> HALF_SHIFT);
+    }
+
+    /**
+     * Gets the low half of a packed value.
+     *
+     * @param packed The packed value
+     * @return The int stored in the low half
+     */
+    static int low(long packed) {
+        return (int) packed;
+    }
+}
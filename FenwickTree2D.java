@@ -0,0 +1,115 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * A two-dimensional binary indexed (Fenwick) tree over a rows x cols board. Supports
+ * point updates and rectangle sums in O(log rows * log cols). Uses 0-based external
+ * indexing; the 1-based layout is kept internal to the tree.
+ */
+import java.util.Arrays;
+
+public class FenwickTree2D {
+    private final int[][] tree;
+    private final int rows;
+    private final int cols;
+
+    public FenwickTree2D(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.tree = new int[rows + 1][cols + 1];
+    }
+
+    /**
+     * Stores a raw value for a cell before the tree is built. Must only be used on a
+     * freshly created or cleared tree, followed by a single call to build().
+     *
+     * @param row The row index (0-based)
+     * @param col The column index (0-based)
+     * @param value The value of the cell
+     */
+    public void load(int row, int col, int value) {
+        tree[row + 1][col + 1] = value;
+    }
+
+    /**
+     * Sets every cell back to 0 so the tree can be loaded again without reallocating it.
+     */
+    public void clear() {
+        for (int[] line : tree) {
+            Arrays.fill(line, 0);
+        }
+    }
+
+    /**
+     * Turns the raw values stored with load() into a valid tree in linear time,
+     * first propagating along each row and then along each column.
+     */
+    public void build() {
+        for (int i = 1; i <= rows; i++) {
+            int[] line = tree[i];
+            for (int j = 1; j <= cols; j++) {
+                int parent = j + (j & -j);
+                if (parent <= cols) {
+                    line[parent] += line[j];
+                }
+            }
+        }
+        for (int i = 1; i <= rows; i++) {
+            int parent = i + (i & -i);
+            if (parent <= rows) {
+                int[] from = tree[i];
+                int[] to = tree[parent];
+                for (int j = 1; j <= cols; j++) {
+                    to[j] += from[j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a delta to a single cell.
+     *
+     * @param row The row index (0-based)
+     * @param col The column index (0-based)
+     * @param delta The amount to add
+     */
+    public void add(int row, int col, int delta) {
+        for (int i = row + 1; i <= rows; i += i & -i) {
+            int[] line = tree[i];
+            for (int j = col + 1; j <= cols; j += j & -j) {
+                line[j] += delta;
+            }
+        }
+    }
+
+    /**
+     * Sums all cells in the rectangle from (0, 0) to (row, col), inclusive.
+     *
+     * @param row The last row index (0-based), -1 for an empty sum
+     * @param col The last column index (0-based), -1 for an empty sum
+     * @return The sum of the prefix rectangle
+     */
+    public int prefixSum(int row, int col) {
+        int sum = 0;
+        for (int i = row + 1; i > 0; i -= i & -i) {
+            int[] line = tree[i];
+            for (int j = col + 1; j > 0; j -= j & -j) {
+                sum += line[j];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Sums all cells in the rectangle between two corners, inclusive. The corners
+     * must already be ordered and inside the board.
+     *
+     * @param top The first row index (0-based)
+     * @param left The first column index (0-based)
+     * @param bottom The last row index (0-based)
+     * @param right The last column index (0-based)
+     * @return The sum of the rectangle
+     */
+    public int rangeSum(int top, int left, int bottom, int right) {
+        return prefixSum(bottom, right) - prefixSum(top - 1, right)
+                - prefixSum(bottom, left - 1) + prefixSum(top - 1, left - 1);
+    }
+}
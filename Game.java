@@ -31,6 +31,35 @@ public class Game {
     public static final char MAX_SHIELD_CELL = '9';
     public static final char CRYSTAL_CELL = 'X';
     public static final char EMPTY_CELL = '.';
+    public static final char FOG_CELL = '?';
+
+    /**
+     * Opcodes accepted by runBatch. OP_DETECT_RADIUS carries the radius in the bits
+     * above OP_BITS.
+     */
+    public static final int OP_UP = 0;
+    public static final int OP_DOWN = 1;
+    public static final int OP_LEFT = 2;
+    public static final int OP_RIGHT = 3;
+    public static final int OP_DETECT = 4;
+    public static final int OP_DETECT_RADIUS = 5;
+    public static final int OP_SKIP = 6;
+    public static final int OP_BITS = 8;
+    private static final int OP_MASK = (1 << OP_BITS) - 1;
+
+    /**
+     * Layout of the results written by runBatch: RESULT_STRIDE ints per operation. The
+     * code is a MOVE_ constant for moves, or RESULT_DETECTED or RESULT_SKIPPED; the value
+     * is the mine count for detections and the shield duration otherwise.
+     */
+    public static final int RESULT_STRIDE = 5;
+    public static final int RESULT_CODE = 0;
+    public static final int RESULT_PLAYER = 1;
+    public static final int RESULT_ROW = 2;
+    public static final int RESULT_COL = 3;
+    public static final int RESULT_VALUE = 4;
+    public static final int RESULT_DETECTED = 7;
+    public static final int RESULT_SKIPPED = 8;
 
     private final Grid grid;
     private Player[] players;
@@ -39,14 +68,76 @@ public class Game {
     private int activePlayers;
     private boolean isGameOver;
     private Player lastPlayer;
+    private boolean fogOfWar;
+    private long stateHash;
+    private EventRing events;
+    private ChangeSet changes;
 
     public Game(int rows, int cols, char[][] gridData) {
+        this(new GameMap(rows, cols, gridData));
+    }
+
+    public Game(GameMap map) {
         isGameOver = false;
         currentPlayerIndex = 0;
-        this.grid = new Grid(rows, cols);
-        for (int i = 0; i < rows; i++) {
-            grid.loadRow(i, gridData[i]);
+        this.grid = new Grid(map);
+    }
+
+    /**
+     * Creates an independent copy of another game, used by bots to simulate moves.
+     * The map is shared; the cleared cells and the players are copied. The copy does not
+     * track known cells, even if the original game uses the fog-of-war mode.
+     *
+     * @param other The game to copy
+     */
+    public Game(Game other) {
+        this.grid = new Grid(other.grid);
+        copyState(other);
+    }
+
+    /**
+     * Turns the game into a copy of another game, as Game(Game) would, but reusing this
+     * game's grid storage, its player array when the number of slots is the same, and the
+     * Player objects in it, the way reset does. Lets a bot run many simulations on one
+     * scratch game. Players and iterators taken from this game before the call must no
+     * longer be used. Fog of war, the event ring and the change listeners are turned off.
+     *
+     * @param other The game to copy; it is not modified
+     */
+    public void copyFrom(Game other) {
+        grid.copyFrom(other.grid);
+        fogOfWar = false;
+        events = null;
+        changes = null;
+        copyState(other);
+    }
+
+    /**
+     * Copies the players and the turn state of another game, reusing the Player objects
+     * already in this game's slots.
+     *
+     * @param other The game to copy
+     */
+    private void copyState(Game other) {
+        if (players == null || players.length != other.players.length) {
+            players = new Player[other.players.length];
         }
+        lastPlayer = null;
+        for (int i = 0; i < other.allPlayers; i++) {
+            if (players[i] == null) {
+                players[i] = new Player(other.players[i]);
+            } else {
+                players[i].copyFrom(other.players[i]);
+            }
+            if (other.players[i] == other.lastPlayer) {
+                lastPlayer = players[i];
+            }
+        }
+        this.currentPlayerIndex = other.currentPlayerIndex;
+        this.allPlayers = other.allPlayers;
+        this.activePlayers = other.activePlayers;
+        this.isGameOver = other.isGameOver;
+        this.stateHash = other.stateHash;
     }
 
     /**
@@ -59,6 +150,43 @@ public class Game {
         players = new Player[numPlayers];
         activePlayers = 0;
         allPlayers = 0;
+        stateHash = Zobrist.turnKey(currentPlayerIndex);
+    }
+
+    /**
+     * Puts a finished game back to the start of a new one on another map, as if it had
+     * been created with the map and initializePlayers had been called. The grid storage,
+     * the player array when the number of slots is the same, and the Player objects in it
+     * are reused, so players and iterators taken from the previous game must no longer be
+     * used. Fog of war, the event ring and the change listeners are turned off.
+     *
+     * @param map The map of the next game
+     * @param numPlayers The maximum number of players that can join the game
+     */
+    public void reset(GameMap map, int numPlayers) {
+        grid.reset(map);
+        isGameOver = false;
+        currentPlayerIndex = 0;
+        lastPlayer = null;
+        fogOfWar = false;
+        events = null;
+        changes = null;
+        if (players == null || players.length != numPlayers) {
+            players = new Player[numPlayers];
+        }
+        activePlayers = 0;
+        allPlayers = 0;
+        stateHash = Zobrist.turnKey(currentPlayerIndex);
+    }
+
+    /**
+     * Turns on the fog-of-war mode, where each player only knows the cells they have
+     * visited or detected around. Must be called before adding any players to the game.
+     * Visibility sets hold int cell indexes, so the mode needs a board of fewer than 2^31
+     * cells.
+     */
+    public void enableFogOfWar() {
+        fogOfWar = true;
     }
 
     /**
@@ -73,7 +201,21 @@ public class Game {
     public boolean addPlayer(int row, int col, String name) {
         Position pos = new Position(row, col);
         if (grid.isValidPosition(pos) && grid.isEmpty(pos) && !isPositionTaken(pos)) {
-            players[activePlayers] = new Player(name, row, col);
+            Player player = players[activePlayers];
+            if (player == null) {
+                player = new Player(name, row, col);
+            } else {
+                player.reset(name, row, col);
+            }
+            if (changes != null) {
+                player.setChangeSet(changes);
+            }
+            if (fogOfWar) {
+                player.startTrackingKnownCells();
+                reveal(player, pos);
+            }
+            players[activePlayers] = player;
+            stateHash ^= playerHash(activePlayers);
             activePlayers++;
             allPlayers++;
             return true;
@@ -105,8 +247,86 @@ public class Game {
      * @return An integer constant indicating the move result
      */
     public int movePlayer(String direction) {
+        return moveCurrentPlayer(getCurrentPlayer().getPosition().calculateNewPosition(direction));
+    }
+
+    /**
+     * Runs a batch of encoded actions for the players in turn order, without any string
+     * handling or per-action calls from the caller. The batch stops early when the game
+     * ends, so actions after the end are not run and their results are not written.
+     *
+     * @param ops The actions, each an OP_ constant (with its argument for OP_DETECT_RADIUS)
+     * @param count The number of actions to run from the start of ops
+     * @param results The array receiving RESULT_STRIDE ints per action run
+     * @return The number of actions run
+     * @throws IllegalArgumentException if an opcode is not valid
+     */
+    public int runBatch(int[] ops, int count, int[] results) {
+        int done = 0;
+        for (int out = 0; done < count && !isGameOver; done++, out += RESULT_STRIDE) {
+            int op = ops[done];
+            int slot = currentPlayerIndex;
+            Position pos = players[slot].getPosition();
+            int code;
+            int value = 0;
+            switch (op & OP_MASK) {
+                case OP_UP -> code = moveCurrentPlayer(grid.positionAt(pos.getRow() - 1, pos.getColumn()));
+                case OP_DOWN -> code = moveCurrentPlayer(grid.positionAt(pos.getRow() + 1, pos.getColumn()));
+                case OP_LEFT -> code = moveCurrentPlayer(grid.positionAt(pos.getRow(), pos.getColumn() - 1));
+                case OP_RIGHT -> code = moveCurrentPlayer(grid.positionAt(pos.getRow(), pos.getColumn() + 1));
+                case OP_DETECT -> {
+                    code = RESULT_DETECTED;
+                    value = detect();
+                }
+                case OP_DETECT_RADIUS -> {
+                    code = RESULT_DETECTED;
+                    value = detectInRadius(op >>> OP_BITS);
+                }
+                case OP_SKIP -> {
+                    code = RESULT_SKIPPED;
+                    skip();
+                }
+                default -> throw new IllegalArgumentException(Integer.toString(op));
+            }
+            if (code != RESULT_DETECTED) {
+                value = players[slot].getShieldDuration();
+            }
+            pos = players[slot].getPosition();
+            results[out + RESULT_CODE] = code;
+            results[out + RESULT_PLAYER] = slot;
+            results[out + RESULT_ROW] = pos.getRow();
+            results[out + RESULT_COL] = pos.getColumn();
+            results[out + RESULT_VALUE] = value;
+        }
+        return done;
+    }
+
+    /**
+     * Moves the current player to a neighboring position, or to their own position for
+     * an unknown direction, keeping the state hash and the event ring up to date.
+     *
+     * @param newPosition The position to move to
+     * @return An integer constant indicating the move result
+     */
+    private int moveCurrentPlayer(Position newPosition) {
+        int slot = currentPlayerIndex;
+        stateHash ^= playerHash(slot);
+        int result = executeMove(newPosition);
+        stateHash ^= playerHash(slot);
+        if (events != null) {
+            publish(EventRing.EVENT_MOVE, slot, result, lastPlayer.getShieldDuration());
+        }
+        return result;
+    }
+
+    /**
+     * Carries out a move for the current player, as described in movePlayer.
+     *
+     * @param newPosition The position to move to
+     * @return An integer constant indicating the move result
+     */
+    private int executeMove(Position newPosition) {
         Player player = getCurrentPlayer();
-        Position newPosition = player.getPosition().calculateNewPosition(direction);
         if (!grid.isValidPosition(newPosition)) {
             saveState(player);
             player.finishTurn();
@@ -121,10 +341,11 @@ public class Game {
         }
         char cell = grid.getCell(newPosition);
         int result = processCell(player, newPosition, cell);
-        player.finishTurn();
-        if (!isGameOver) {
-            nextTurn();
+        if (fogOfWar) {
+            reveal(player, newPosition);
         }
+        player.finishTurn();
+        nextTurn();
         saveState(player);
         return result;
     }
@@ -151,18 +372,18 @@ public class Game {
     private int processCell(Player player, Position newPosition, char cell) {
         if (cell == MINE_CELL) {
             if (player.isProtected()) {
-                grid.clearCell(newPosition);
+                clearCell(newPosition);
                 player.moveTo(newPosition);
                 return MOVE_SUCCESS_PROTECTED;
             } else {
                 eliminatePlayer(player);
-                grid.clearCell(newPosition);
+                clearCell(newPosition);
                 player.moveTo(newPosition);
                 return MOVE_MINE_HIT;
             }
         } else if (cell >= MIN_SHIELD_CELL && cell <= MAX_SHIELD_CELL) {
             player.addShield(Character.getNumericValue(cell));
-            grid.clearCell(newPosition);
+            clearCell(newPosition);
             player.moveTo(newPosition);
             return MOVE_SHIELD_PICKUP;
         } else if (cell == CRYSTAL_CELL) {
@@ -197,12 +418,121 @@ public class Game {
      * @return The number of mines in adjacent cells
      */
     public int detect() {
-        int mines = grid.countSurroundingMines(getCurrentPlayer().getPosition());
-        getCurrentPlayer().finishTurn();
-        nextTurn();
+        Position pos = getCurrentPlayer().getPosition();
+        int mines = grid.countSurroundingMines(pos);
+        if (fogOfWar) {
+            revealAround(getCurrentPlayer(), pos);
+        }
+        finishDetect(mines);
+        return mines;
+    }
+
+    /**
+     * Allows the current player to scan for mines with a long-range scanner.
+     * Counts the mines in the square of the given radius centered on the player's position.
+     *
+     * @param radius The maximum row and column distance to scan
+     * @return The number of mines within the radius
+     * @throws IllegalArgumentException if the radius is negative; the turn is not used up
+     */
+    public int detectInRadius(int radius) {
+        int mines = grid.countMinesInRadius(getCurrentPlayer().getPosition(), radius);
+        finishDetect(mines);
         return mines;
     }
 
+    /**
+     * Allows the current player to scan for mines in an arbitrary rectangle of the grid.
+     * Parts of the rectangle outside the grid are ignored.
+     *
+     * @param row1 The row of the first corner
+     * @param col1 The column of the first corner
+     * @param row2 The row of the opposite corner
+     * @param col2 The column of the opposite corner
+     * @return The number of mines in the rectangle
+     */
+    public int detectInArea(int row1, int col1, int row2, int col2) {
+        int mines = grid.countMinesInArea(new Position(row1, col1), new Position(row2, col2));
+        finishDetect(mines);
+        return mines;
+    }
+
+    /**
+     * Marks a cell as known to a player in the fog-of-war mode.
+     *
+     * @param player The player learning about the cell
+     * @param pos The position of the cell
+     */
+    private void reveal(Player player, Position pos) {
+        player.getKnownCells().add(Math.toIntExact(grid.getCellIndex(pos)));
+    }
+
+    /**
+     * Marks the cells around a position, and the position itself, as known to a player
+     * in the fog-of-war mode. Long-range scans only report a count and reveal no cells.
+     *
+     * @param player The player learning about the cells
+     * @param pos The center position
+     */
+    private void revealAround(Player player, Position pos) {
+        for (int i = pos.getRow() - 1; i <= pos.getRow() + 1; i++) {
+            for (int j = pos.getColumn() - 1; j <= pos.getColumn() + 1; j++) {
+                Position cell = new Position(i, j);
+                if (grid.isValidPosition(cell)) {
+                    reveal(player, cell);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the content of a cell as seen by a player. Outside the fog-of-war mode every
+     * cell is visible; in it, unknown cells are shown as FOG_CELL.
+     *
+     * @param player The player whose view is used
+     * @param pos The position of the cell (1-based coordinates)
+     * @return The cell's content, or FOG_CELL if the player does not know it
+     */
+    public char getVisibleCell(Player player, Position pos) {
+        if (fogOfWar && !player.getKnownCells().contains(Math.toIntExact(grid.getCellIndex(pos)))) {
+            return FOG_CELL;
+        }
+        return grid.getCell(pos);
+    }
+
+    /**
+     * Gets the cells known to at least one player of a team in the fog-of-war mode.
+     * Players only record known cells in that mode, so calling this without it is an error
+     * rather than an empty answer that would look like a team knowing nothing.
+     *
+     * @param team The players forming the team
+     * @return The union of the known cells of the team
+     * @throws IllegalStateException if the fog-of-war mode is not enabled
+     */
+    public VisibilitySet getTeamKnownCells(Player[] team) {
+        if (!fogOfWar) {
+            throw new IllegalStateException("Fog of war is not enabled");
+        }
+        VisibilitySet known = new VisibilitySet();
+        for (Player player : team) {
+            known = VisibilitySet.union(known, player.getKnownCells());
+        }
+        return known;
+    }
+
+    /**
+     * Ends the current player's turn after any kind of detection.
+     *
+     * @param mines The number of mines that were detected
+     */
+    private void finishDetect(int mines) {
+        if (events != null) {
+            publish(EventRing.EVENT_DETECT, currentPlayerIndex, 0, mines);
+        }
+        finishTurnHashed(getCurrentPlayer());
+        nextTurn();
+    }
+
     /**
      * Allows the current player to skip their turn.
      * Save current state of the player conditions.
@@ -211,8 +541,123 @@ public class Game {
     public void skip() {
         Player player = getCurrentPlayer();
         saveState(player);
-        player.finishTurn();
+        int slot = currentPlayerIndex;
+        finishTurnHashed(player);
         nextTurn();
+        if (events != null) {
+            publish(EventRing.EVENT_SKIP, slot, 0, player.getShieldDuration());
+        }
+    }
+
+    /**
+     * Sets the ring that receives an event for every move, detect, skip and ranking,
+     * so spectators can follow the game without slowing it down.
+     *
+     * @param events The ring to publish to, or null to stop publishing
+     */
+    public void setEventRing(EventRing events) {
+        this.events = events;
+    }
+
+    /**
+     * Adds a listener that receives, at the end of every turn, the cells cleared and the
+     * players changed during that turn. Games without listeners record nothing.
+     *
+     * @param listener The listener to add
+     */
+    public void addChangeListener(ChangeListener listener) {
+        if (changes == null) {
+            changes = new ChangeSet();
+            attachChangeSet(changes);
+        }
+        changes.addListener(listener);
+    }
+
+    /**
+     * Removes a change listener. When the last one is removed, the game stops recording
+     * changes.
+     *
+     * @param listener The listener to remove
+     */
+    public void removeChangeListener(ChangeListener listener) {
+        if (changes == null) {
+            return;
+        }
+        changes.removeListener(listener);
+        if (!changes.hasListeners()) {
+            changes = null;
+            attachChangeSet(null);
+        }
+    }
+
+    /**
+     * Attaches a change set to the grid and to every player added so far.
+     *
+     * @param changes The change set, or null to detach the current one
+     */
+    private void attachChangeSet(ChangeSet changes) {
+        grid.setChangeSet(changes);
+        for (int i = 0; i < allPlayers; i++) {
+            players[i].setChangeSet(changes);
+        }
+    }
+
+    /**
+     * Publishes an event about a player to the event ring.
+     *
+     * @param type The event type
+     * @param slot The index of the player
+     * @param code The result code
+     * @param value The value carried by the event
+     */
+    private void publish(int type, int slot, int code, int value) {
+        Position pos = players[slot].getPosition();
+        events.publish(type, slot, code, pos.getRow(), pos.getColumn(), value);
+    }
+
+    /**
+     * Ends the turn of the current player, updating the state hash for the shield change.
+     *
+     * @param player The current player
+     */
+    private void finishTurnHashed(Player player) {
+        stateHash ^= playerHash(currentPlayerIndex);
+        player.finishTurn();
+        stateHash ^= playerHash(currentPlayerIndex);
+    }
+
+    /**
+     * Clears a cell of the grid, updating the state hash. Only called on cells that
+     * still hold a mine or a shield.
+     *
+     * @param pos The position to clear
+     */
+    private void clearCell(Position pos) {
+        stateHash ^= Zobrist.clearedCellKey(grid.getCellIndex(pos));
+        grid.clearCell(pos);
+    }
+
+    /**
+     * Computes the Zobrist key of the current state of a player.
+     *
+     * @param slot The index of the player in the players array
+     * @return The key of the player's state
+     */
+    private long playerHash(int slot) {
+        Player player = players[slot];
+        return Zobrist.playerKey(slot, grid.getCellIndex(player.getPosition()), player);
+    }
+
+    /**
+     * Gets the 64-bit Zobrist hash of the game state. Covers the cells cleared so far,
+     * the position, shield and elimination of every player, and whose turn it is. Kept
+     * up to date in O(1) by every action, so bots can use it as a transposition table key.
+     * Hashes are only comparable between games played on the same map.
+     *
+     * @return The state hash
+     */
+    public long getStateHash() {
+        return stateHash;
     }
 
     /**
@@ -226,10 +671,26 @@ public class Game {
      *
      * @return An iterator over the sorted player array
      */
-    @SuppressWarnings("ManualArrayCopy")
     public MyIterator getRankedPlayers() {
-        Player[] rankedPlayers = new Player[allPlayers];
-        for (int i = 0; i < allPlayers; i++) {
+        if (events != null) {
+            events.publish(EventRing.EVENT_RANK, currentPlayerIndex, 0, 0, 0, allPlayers);
+        }
+        return rankPlayers(players, allPlayers, grid.getCrystalPosition());
+    }
+
+    /**
+     * Sorts players by the ranking criteria described in getRankedPlayers. Shared with
+     * games whose players are not held by a Game, such as partitioned games.
+     *
+     * @param players The players, in the order they were added
+     * @param count The number of players to rank
+     * @param crystal The position of the crystal
+     * @return An iterator over the players, best first
+     */
+    @SuppressWarnings("ManualArrayCopy")
+    public static MyIterator rankPlayers(Player[] players, int count, Position crystal) {
+        Player[] rankedPlayers = new Player[count];
+        for (int i = 0; i < count; i++) {
             rankedPlayers[i] = players[i];
         }
 
@@ -238,7 +699,7 @@ public class Game {
                 Player p1 = rankedPlayers[j];
                 Player p2 = rankedPlayers[j + 1];
 
-                if (shouldSwapPlayers(p1, p2)) {
+                if (shouldSwapPlayers(p1, p2, crystal)) {
                     Player temp = rankedPlayers[j];
                     rankedPlayers[j] = rankedPlayers[j + 1];
                     rankedPlayers[j + 1] = temp;
@@ -254,9 +715,10 @@ public class Game {
      *
      * @param p1 The first player to compare
      * @param p2 The second player to compare
+     * @param crystal The position of the crystal
      * @return true if the players should swap positions, false otherwise
      */
-    private boolean shouldSwapPlayers(Player p1, Player p2) {
+    private static boolean shouldSwapPlayers(Player p1, Player p2, Position crystal) {
         // Firstly checks if player has collected crystal
         if (p1.hasCollectedCrystal() != p2.hasCollectedCrystal()) {
             return !p1.hasCollectedCrystal(); // Player with crystal should be 1'st
@@ -274,8 +736,8 @@ public class Game {
             return p1.getName().compareTo(p2.getName()) > 0;
         }
         //If both active, compare by distance to crystal
-        int dist1 = grid.getDistanceToCrystal(p1.getPosition());
-        int dist2 = grid.getDistanceToCrystal(p2.getPosition());
+        int dist1 = p1.getPosition().distanceManhattan(crystal);
+        int dist2 = p2.getPosition().distanceManhattan(crystal);
         if (dist1 != dist2) {
             return dist1 > dist2; // Less distance = higher on list
         }
@@ -286,9 +748,22 @@ public class Game {
     /**
      * Advances the game to the next active player's turn.
      * Skips eliminated players and can trigger game over if no valid moves remain.
+     * The changes of the turn that ended are handed to the change listeners first.
      */
     private void nextTurn() {
+        if (changes != null) {
+            changes.flush();
+        }
         if (isGameOver) return;
+        int previousIndex = currentPlayerIndex;
+        advanceTurn();
+        stateHash ^= Zobrist.turnKey(previousIndex) ^ Zobrist.turnKey(currentPlayerIndex);
+    }
+
+    /**
+     * Moves currentPlayerIndex to the next active player, as described in nextTurn.
+     */
+    private void advanceTurn() {
         int startingIndex = currentPlayerIndex;
         do {
             currentPlayerIndex = (currentPlayerIndex + 1) % allPlayers;
@@ -387,6 +862,34 @@ public class Game {
         return isGameOver;
     }
 
+    /**
+     * Gets the number of rows of the grid.
+     *
+     * @return The row count
+     */
+    public int getRows() {
+        return grid.getRows();
+    }
+
+    /**
+     * Gets the number of columns of the grid.
+     *
+     * @return The column count
+     */
+    public int getCols() {
+        return grid.getCols();
+    }
+
+    /**
+     * Gets the current content of a cell, ignoring the fog-of-war mode.
+     *
+     * @param pos The position of the cell (1-based coordinates)
+     * @return The character representing the cell's content
+     */
+    public char getCell(Position pos) {
+        return grid.getCell(pos);
+    }
+
     /**
      * Gets the player whose turn it currently is.
      *
@@ -396,6 +899,34 @@ public class Game {
         return players[currentPlayerIndex];
     }
 
+    /**
+     * Gets the index of the player whose turn it is, in the order players were added.
+     *
+     * @return The index of the current player
+     */
+    public int getCurrentPlayerIndex() {
+        return currentPlayerIndex;
+    }
+
+    /**
+     * Gets the number of players added to the game, including eliminated ones.
+     *
+     * @return The number of players
+     */
+    public int getPlayerCount() {
+        return allPlayers;
+    }
+
+    /**
+     * Gets a player by the order in which they were added.
+     *
+     * @param index The index of the player
+     * @return The Player object
+     */
+    public Player getPlayer(int index) {
+        return players[index];
+    }
+
     /**
      * Gets the column position of the player who just completed their turn. (1-based indexing)
      *
@@ -0,0 +1,24 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * Receives game events read from an EventRing by an EventConsumer. All fields are passed
+ * as primitives so that delivering an event allocates nothing.
+ *
+ * @see EventRing
+ */
+
+public interface GameEventHandler {
+
+    /**
+     * Handles one event.
+     *
+     * @param sequence The sequence number of the event in the ring
+     * @param type The event type, one of the EventRing.EVENT_* constants
+     * @param player The index of the player the event is about
+     * @param code The result code: a Game.MOVE_* constant for moves, 0 otherwise
+     * @param row The row of the player after the event
+     * @param col The column of the player after the event
+     * @param value The shield duration for moves, the mine count for detects,
+     *              the number of ranked players for rank events
+     */
+    void onEvent(long sequence, int type, int player, int code, int row, int col, int value);
+}
@@ -0,0 +1,163 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * Immutable map data loaded once and shared by every game played on it. Holds the
+ * initial cell layout, the crystal position and the bitboard mine layer. Changes made
+ * during a game are kept by each Grid on top of this map, never in the map itself.
+ * Uses 0-based indexing unless stated otherwise.
+ */
+
+public class GameMap {
+    private final char[][] layout;
+    private final int rows;
+    private final int cols;
+    private final Position crystalPos;
+    private final MineBitboard mineLayer;
+    private volatile Position[] positions;
+
+    /**
+     * Largest map, in cells, whose positions are cached by positionAt.
+     */
+    private static final int POSITION_CACHE_CELLS = 1 << 20;
+
+    public GameMap(int rows, int cols, char[][] gridData) {
+        this(copyRows(rows, cols, gridData), rows, cols);
+    }
+
+    private GameMap(char[][] layout, int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.layout = layout;
+        this.mineLayer = new MineBitboard(rows, cols);
+        Position crystal = null;
+        for (int i = 0; i < rows; i++) {
+            char[] row = layout[i];
+            for (int j = 0; j < cols; j++) {
+                if (row[j] == Game.MINE_CELL) {
+                    mineLayer.set(i, j);
+                } else if (row[j] == Game.CRYSTAL_CELL) {
+                    crystal = new Position(i + 1, j + 1);
+                }
+            }
+        }
+        this.crystalPos = crystal;
+    }
+
+    /**
+     * Creates a map that takes ownership of an already built layout instead of copying it.
+     * Used by map loaders that produce a fresh rows x cols array; the caller must not
+     * modify the array afterwards.
+     *
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @param layout The layout to adopt, one array of exactly cols cells per row
+     * @return A new GameMap backed by the given layout
+     */
+    public static GameMap adopt(int rows, int cols, char[][] layout) {
+        return new GameMap(layout, rows, cols);
+    }
+
+    /**
+     * Copies the first cols cells of each row into a new layout.
+     *
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @param gridData The rows to copy
+     * @return A new rows x cols layout
+     */
+    private static char[][] copyRows(int rows, int cols, char[][] gridData) {
+        char[][] layout = new char[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(gridData[i], 0, layout[i], 0, cols);
+        }
+        return layout;
+    }
+
+    /**
+     * Gets the number of rows of the map.
+     *
+     * @return The number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the number of columns of the map.
+     *
+     * @return The number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Gets the initial content of a cell.
+     *
+     * @param row The row index (0-based)
+     * @param col The column index (0-based)
+     * @return The character representing the cell's initial content
+     */
+    public char getCell(int row, int col) {
+        return layout[row][col];
+    }
+
+    /**
+     * Gets the position of the crystal.
+     *
+     * @return The crystal position (1-based coordinates), or null if the map has none
+     */
+    public Position getCrystalPosition() {
+        return crystalPos;
+    }
+
+    /**
+     * Gets the position of a cell. Positions are immutable, so on maps of up to
+     * POSITION_CACHE_CELLS cells each one is created once and then shared by every game
+     * on the map, which keeps moves from allocating. Positions outside the map and on
+     * larger maps are created on every call. Safe to call from any number of threads; a
+     * race only creates the same position twice.
+     *
+     * @param row The row (1-based)
+     * @param col The column (1-based)
+     * @return A position equal to new Position(row, col)
+     */
+    public Position positionAt(int row, int col) {
+        if (row < 1 || row > rows || col < 1 || col > cols || (long) rows * cols > POSITION_CACHE_CELLS) {
+            return new Position(row, col);
+        }
+        Position[] cache = positions;
+        if (cache == null) {
+            cache = new Position[rows * cols];
+            positions = cache;
+        }
+        int index = (row - 1) * cols + col - 1;
+        Position pos = cache[index];
+        if (pos == null) {
+            pos = new Position(row, col);
+            cache[index] = pos;
+        }
+        return pos;
+    }
+
+    /**
+     * Estimates the memory used by the map: one char per cell for the layout plus
+     * one bit per cell, rounded up to whole words per row, for the mine layer.
+     *
+     * @return The approximate size of the map data in bytes
+     */
+    public long getSizeInBytes() {
+        long layoutBytes = (long) rows * cols * Character.BYTES;
+        long mineBytes = (long) rows * ((cols + Long.SIZE - 1) / Long.SIZE) * Long.BYTES;
+        return layoutBytes + mineBytes;
+    }
+
+    /**
+     * Builds the mine-count map of the initial layout.
+     *
+     * @return A rows x cols array with the number of mines around each cell
+     * @see MineBitboard#countMap()
+     */
+    public byte[][] getMineCountMap() {
+        return mineLayer.countMap();
+    }
+}
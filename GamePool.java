@@ -0,0 +1,233 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * A bounded pool of finished games kept for reuse by short matches. Acquiring a game
+ * resets a pooled one to the new map and roster, reusing its grid storage and player
+ * slots, and only creates a new Game when the pool is empty. Releasing a game puts it
+ * back unless the pool is full, in which case it is left to the garbage collector.
+ * Safe to use from any number of threads; a game must not be used after it is released.
+ *
+ * Running main plays a series of random matches with or without the pool and prints the
+ * allocation rate and garbage collection figures of the timed part.
+ *
+ * Usage: java GamePool pooled|fresh [matches] [rows] [cols]
+ */
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import static java.lang.Integer.parseInt;
+
+public class GamePool {
+    private final ArrayBlockingQueue<Game> idle;
+    private final int capacity;
+    private final AtomicLong created;
+    private final AtomicLong reused;
+    private final AtomicLong discarded;
+
+    /**
+     * Map settings and match shape used by main.
+     */
+    private static final int DEFAULT_MATCHES = 200_000;
+    private static final int DEFAULT_ROWS = 60;
+    private static final int DEFAULT_COLS = 60;
+    private static final double MINE_DENSITY = 0.08;
+    private static final double SHIELD_DENSITY = 0.04;
+    private static final int MAX_SHIELD = 5;
+    private static final int CRYSTALS = 1;
+    private static final int PLAYERS = 6;
+    private static final int MAX_TURNS = 300;
+    private static final int POOL_SIZE = 4;
+    private static final long SEED = 42L;
+    private static final String[] DIRECTIONS = {"up", "down", "left", "right"};
+    private static final String POOLED = "pooled";
+
+    private static final String MSG_USAGE = "Usage: java GamePool pooled|fresh [matches] [rows] [cols]%n";
+    private static final String MSG_RESULT = "%s: %d matches in %.2f s (%.0f matches/s)%n";
+    private static final String MSG_ALLOCATION = "Allocated %.1f MB (%.0f bytes/match, %.0f MB/s)%n";
+    private static final String MSG_GC = "GC: %d collections, %d ms total, %.2f ms per collection%n";
+    private static final String MSG_POOL = "Pool: %d created, %d reused, %d discarded, %d idle of %d%n";
+
+    public GamePool(int capacity) {
+        this.capacity = capacity;
+        this.idle = new ArrayBlockingQueue<>(capacity);
+        this.created = new AtomicLong();
+        this.reused = new AtomicLong();
+        this.discarded = new AtomicLong();
+    }
+
+    /**
+     * Gets a game at the start of a match on a map, ready for players to be added.
+     *
+     * @param map The map of the match
+     * @param numPlayers The maximum number of players that can join the game
+     * @return A pooled game reset to the map, or a new game if the pool is empty
+     */
+    public Game acquire(GameMap map, int numPlayers) {
+        Game game = idle.poll();
+        if (game == null) {
+            created.incrementAndGet();
+            game = new Game(map);
+            game.initializePlayers(numPlayers);
+        } else {
+            reused.incrementAndGet();
+            game.reset(map, numPlayers);
+        }
+        return game;
+    }
+
+    /**
+     * Returns a finished game to the pool. The game and its players must not be used
+     * afterwards.
+     *
+     * @param game The game to return
+     * @return true if the game was kept, false if the pool was full
+     */
+    public boolean release(Game game) {
+        if (idle.offer(game)) {
+            return true;
+        }
+        discarded.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Gets the maximum number of idle games kept.
+     *
+     * @return The capacity of the pool
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of games currently waiting in the pool.
+     *
+     * @return The idle game count
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Gets the number of games created because the pool was empty.
+     *
+     * @return The number of created games
+     */
+    public long getCreated() {
+        return created.get();
+    }
+
+    /**
+     * Gets the number of acquisitions served by a pooled game.
+     *
+     * @return The number of reused games
+     */
+    public long getReused() {
+        return reused.get();
+    }
+
+    /**
+     * Gets the number of released games dropped because the pool was full.
+     *
+     * @return The number of discarded games
+     */
+    public long getDiscarded() {
+        return discarded.get();
+    }
+
+    /**
+     * Plays random matches with or without the pool and prints the allocation and GC
+     * figures of the second half, after the first half has warmed up the JVM.
+     *
+     * @param args The mode, and optionally the number of matches and the map size
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.printf(MSG_USAGE);
+            return;
+        }
+        boolean pooled = args[0].equals(POOLED);
+        int matches = args.length > 1 ? parseInt(args[1]) : DEFAULT_MATCHES;
+        int rows = args.length > 2 ? parseInt(args[2]) : DEFAULT_ROWS;
+        int cols = args.length > 3 ? parseInt(args[3]) : DEFAULT_COLS;
+        GameMap map = new MapGenerator(rows, cols, MINE_DENSITY, SHIELD_DENSITY, MAX_SHIELD, CRYSTALS)
+                .generate(SEED);
+        GamePool pool = new GamePool(POOL_SIZE);
+        SplittableRandom random = new SplittableRandom(SEED);
+
+        playMatches(pool, pooled, map, matches / 2, random);
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long[] gcBefore = gcTotals();
+        long start = System.nanoTime();
+
+        int timed = matches - matches / 2;
+        playMatches(pool, pooled, map, timed, random);
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+        long[] gcAfter = gcTotals();
+        long collections = gcAfter[0] - gcBefore[0];
+        long gcMillis = gcAfter[1] - gcBefore[1];
+
+        System.out.printf(MSG_RESULT, args[0], timed, seconds, timed / seconds);
+        System.out.printf(MSG_ALLOCATION, allocated / 1e6, (double) allocated / timed, allocated / 1e6 / seconds);
+        System.out.printf(MSG_GC, collections, gcMillis, collections == 0 ? 0.0 : (double) gcMillis / collections);
+        if (pooled) {
+            System.out.printf(MSG_POOL, pool.getCreated(), pool.getReused(), pool.getDiscarded(),
+                    pool.getIdleCount(), pool.getCapacity());
+        }
+    }
+
+    /**
+     * Plays a number of random matches, each with a full roster placed at random.
+     *
+     * @param pool The pool to take games from
+     * @param pooled true to use the pool, false to create a new game for every match
+     * @param map The map of every match
+     * @param matches The number of matches
+     * @param random The source of positions and moves
+     */
+    private static void playMatches(GamePool pool, boolean pooled, GameMap map, int matches,
+                                    SplittableRandom random) {
+        for (int i = 0; i < matches; i++) {
+            Game game;
+            if (pooled) {
+                game = pool.acquire(map, PLAYERS);
+            } else {
+                game = new Game(map);
+                game.initializePlayers(PLAYERS);
+            }
+            for (int added = 0; added < PLAYERS; ) {
+                if (game.addPlayer(random.nextInt(map.getRows()) + 1, random.nextInt(map.getCols()) + 1,
+                        "P" + added)) {
+                    added++;
+                }
+            }
+            for (int turn = 0; turn < MAX_TURNS && !game.isGameOver(); turn++) {
+                game.movePlayer(DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+            }
+            if (pooled) {
+                pool.release(game);
+            }
+        }
+    }
+
+    /**
+     * Sums the collection count and time of every garbage collector.
+     *
+     * @return The total number of collections and the total time in milliseconds
+     */
+    private static long[] gcTotals() {
+        long[] totals = new long[2];
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            totals[0] += Math.max(0, collector.getCollectionCount());
+            totals[1] += Math.max(0, collector.getCollectionTime());
+        }
+        return totals;
+    }
+}
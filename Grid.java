@@ -3,34 +3,93 @@
  * Represents the game board as a 2D grid with cells containing various game elements.
  * Handles grid operations, cell management, and distance calculations. Uses 0-based internal
  * indexing but accepts 1-based Position objects for external interactions.
+ * The initial layout lives in a shared, immutable GameMap; a grid only records the cells
+ * it has cleared, so its memory grows with the changes made during the game.
  */
 
 public class Grid {
-    private final char[][] gridLayout;
-    private final int rows;
-    private final int cols;
+    private GameMap map;
+    private final CellSet clearedCells;
+    private int rows;
+    private int cols;
     private Position crystalPos;
+    private FenwickTree2D mineIndex;
+    private FenwickTree2D spareMineIndex;
+    private ChangeSet changes;
 
-    public Grid(int rows, int cols) {
-        this.rows = rows;
-        this.cols = cols;
-        this.gridLayout = new char[rows][cols];
+    public Grid(GameMap map) {
+        this.map = map;
+        this.rows = map.getRows();
+        this.cols = map.getCols();
+        this.crystalPos = map.getCrystalPosition();
+        this.clearedCells = new CellSet();
     }
 
+    /**
+     * Creates a copy of another grid. The map is shared and only the cleared cells are
+     * copied, so the copy costs memory proportional to the changes made so far.
+     *
+     * @param other The grid to copy
+     */
+    public Grid(Grid other) {
+        this.map = other.map;
+        this.rows = other.rows;
+        this.cols = other.cols;
+        this.crystalPos = other.crystalPos;
+        this.clearedCells = new CellSet(other.clearedCells);
+    }
 
     /**
-     * Loads a row of cells into the grid and updates crystal position if found.
+     * Puts the grid back to the start of a game on another map, keeping the storage of
+     * the cleared cells and, when the map has the same size, of the mine index. The
+     * change set is detached, as on a new grid.
      *
-     * @param row The row index (0-based) to load
-     * @param gridImported Array of characters representing the row's cells
+     * @param map The map of the next game
      */
-    public void loadRow(int row, char[] gridImported) {
-        for (int i = 0; i < cols; i++) {
-            gridLayout[row][i] = gridImported[i];
-            if (gridImported[i] == Game.CRYSTAL_CELL) {
-                crystalPos = new Position(row + 1, i + 1);
-            }
+    public void reset(GameMap map) {
+        boolean sameSize = map.getRows() == rows && map.getCols() == cols;
+        this.map = map;
+        this.rows = map.getRows();
+        this.cols = map.getCols();
+        this.crystalPos = map.getCrystalPosition();
+        clearedCells.clear();
+        if (mineIndex != null) {
+            spareMineIndex = mineIndex;
+            mineIndex = null;
+        }
+        if (!sameSize) {
+            spareMineIndex = null;
         }
+        changes = null;
+    }
+
+    /**
+     * Turns the grid into a copy of another grid, as the copy constructor would, but
+     * keeping this grid's storage as reset does. The change set is detached.
+     *
+     * @param other The grid to copy
+     */
+    public void copyFrom(Grid other) {
+        reset(other.map);
+        clearedCells.copyFrom(other.clearedCells);
+    }
+
+    /**
+     * Gets the number of rows of the grid.
+     *
+     * @return The row count
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the number of columns of the grid.
+     *
+     * @return The column count
+     */
+    public int getCols() {
+        return cols;
     }
 
     /**
@@ -43,6 +102,19 @@ public class Grid {
         return pos.isValidPosition(rows, cols);
     }
 
+    /**
+     * Gets the position of a cell, shared with the other games on the same map when the
+     * map caches its positions.
+     *
+     * @param row The row (1-based)
+     * @param col The column (1-based)
+     * @return A position equal to new Position(row, col)
+     * @see GameMap#positionAt(int, int)
+     */
+    public Position positionAt(int row, int col) {
+        return map.positionAt(row, col);
+    }
+
     /**
      * Gets the character at the specified position in the grid.
      *
@@ -50,7 +122,44 @@ public class Grid {
      * @return The character representing the cell's content
      */
     public char getCell(Position pos) {
-        return gridLayout[pos.getRow() - 1][pos.getColumn() - 1];
+        return cellAt(pos.getRow() - 1, pos.getColumn() - 1);
+    }
+
+    /**
+     * Gets the current content of a cell. Empty cells of the map are answered without
+     * looking at the cleared cells, since clearing never affects them.
+     *
+     * @param row The row index (0-based)
+     * @param col The column index (0-based)
+     * @return The character representing the cell's content
+     */
+    private char cellAt(int row, int col) {
+        char cell = map.getCell(row, col);
+        if (cell != Game.EMPTY_CELL && clearedCells.contains(cellIndex(row, col))) {
+            return Game.EMPTY_CELL;
+        }
+        return cell;
+    }
+
+    /**
+     * Converts a position into the index of its cell, counting row by row from 0.
+     *
+     * @param pos The position to convert (1-based coordinates)
+     * @return The cell index, (row - 1) * cols + (col - 1)
+     */
+    public long getCellIndex(Position pos) {
+        return cellIndex(pos.getRow() - 1, pos.getColumn() - 1);
+    }
+
+    /**
+     * Converts 0-based coordinates into a single cell index.
+     *
+     * @param row The row index (0-based)
+     * @param col The column index (0-based)
+     * @return The cell index, row * cols + col
+     */
+    private long cellIndex(int row, int col) {
+        return (long) row * cols + col;
     }
 
     /**
@@ -59,7 +168,26 @@ public class Grid {
      * @param pos The position to clear (1-based coordinates)
      */
     public void clearCell(Position pos) {
-        gridLayout[pos.getRow() - 1][pos.getColumn() - 1] = Game.EMPTY_CELL;
+        int row = pos.getRow() - 1;
+        int col = pos.getColumn() - 1;
+        char cell = map.getCell(row, col);
+        if (cell != Game.EMPTY_CELL && clearedCells.add(cellIndex(row, col))) {
+            if (cell == Game.MINE_CELL && mineIndex != null) {
+                mineIndex.add(row, col, -1);
+            }
+            if (changes != null) {
+                changes.cellCleared(cellIndex(row, col));
+            }
+        }
+    }
+
+    /**
+     * Attaches the change set that records every cell cleared from now on.
+     *
+     * @param changes The change set to report to, or null to stop reporting
+     */
+    public void setChangeSet(ChangeSet changes) {
+        this.changes = changes;
     }
 
     /**
@@ -86,13 +214,119 @@ public class Grid {
 
         for (int i = Math.max(0, row - 1); i <= Math.min(rows - 1, row + 1); i++) {
             for (int j = Math.max(0, col - 1); j <= Math.min(cols - 1, col + 1); j++) {
-                if (!(i == row && j == col) && gridLayout[i][j] == Game.MINE_CELL)
+                if (!(i == row && j == col) && cellAt(i, j) == Game.MINE_CELL)
                     count++;
             }
         }
         return count;
     }
 
+    /**
+     * Builds the mine-count map of the whole grid from the bitboard mine layer of the map,
+     * 64 cells at a time, then removes the mines cleared during this game. Suited for
+     * heatmaps and safe-cell enumeration where calling countSurroundingMines for every
+     * cell would be too slow.
+     *
+     * @return A rows x cols array (0-based) with the number of mines around each cell
+     */
+    public byte[][] getMineCountMap() {
+        byte[][] counts = map.getMineCountMap();
+        for (long cell : clearedCells.toArray()) {
+            int row = (int) (cell / cols);
+            int col = (int) (cell % cols);
+            if (map.getCell(row, col) != Game.MINE_CELL) {
+                continue;
+            }
+            for (int i = Math.max(0, row - 1); i <= Math.min(rows - 1, row + 1); i++) {
+                for (int j = Math.max(0, col - 1); j <= Math.min(cols - 1, col + 1); j++) {
+                    if (!(i == row && j == col)) {
+                        counts[i][j]--;
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Counts mines inside a rectangle given by two opposite corners. The corners may be
+     * given in any order and are clamped to the grid boundaries.
+     *
+     * @param corner The first corner of the rectangle (1-based coordinates)
+     * @param opposite The opposite corner of the rectangle (1-based coordinates)
+     * @return The number of mines in the rectangle, 0 if it lies outside the grid
+     */
+    public int countMinesInArea(Position corner, Position opposite) {
+        int top = Math.max(0, Math.min(corner.getRow(), opposite.getRow()) - 1);
+        int bottom = Math.min(rows - 1, Math.max(corner.getRow(), opposite.getRow()) - 1);
+        int left = Math.max(0, Math.min(corner.getColumn(), opposite.getColumn()) - 1);
+        int right = Math.min(cols - 1, Math.max(corner.getColumn(), opposite.getColumn()) - 1);
+        if (top > bottom || left > right) {
+            return 0;
+        }
+        return getMineIndex().rangeSum(top, left, bottom, right);
+    }
+
+    /**
+     * Counts mines within a square radius around a position, excluding the position itself.
+     * A radius of 1 gives the same result as countSurroundingMines.
+     *
+     * @param pos The center position to check around (1-based coordinates)
+     * @param radius The maximum row and column distance from the center
+     * @return The number of mines within the radius
+     * @throws IllegalArgumentException if the radius is negative
+     */
+    public int countMinesInRadius(Position pos, int radius) {
+        if (radius < 0) {
+            throw new IllegalArgumentException(Integer.toString(radius));
+        }
+        radius = Math.min(radius, Math.max(rows, cols));
+        Position topLeft = new Position(pos.getRow() - radius, pos.getColumn() - radius);
+        Position bottomRight = new Position(pos.getRow() + radius, pos.getColumn() + radius);
+        int count = countMinesInArea(topLeft, bottomRight);
+        if (getCell(pos) == Game.MINE_CELL) {
+            count--;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the mine index, building it from the current layout on first use so that
+     * games that never scan beyond the adjacent cells do not pay for it. A tree left by a
+     * previous game of the same size is cleared and reused.
+     *
+     * @return The Fenwick tree counting mine cells
+     */
+    private FenwickTree2D getMineIndex() {
+        if (mineIndex == null) {
+            FenwickTree2D index = spareMineIndex;
+            spareMineIndex = null;
+            if (index == null) {
+                index = new FenwickTree2D(rows, cols);
+            } else {
+                index.clear();
+            }
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    if (cellAt(i, j) == Game.MINE_CELL) {
+                        index.load(i, j, 1);
+                    }
+                }
+            }
+            index.build();
+            mineIndex = index;
+        }
+        return mineIndex;
+    }
+
+    /**
+     * Gets the position of the crystal.
+     *
+     * @return The crystal position (1-based coordinates)
+     */
+    public Position getCrystalPosition() {
+        return crystalPos;
+    }
 
     /**
      * Calculates the Manhattan distance between a position and the crystal.
@@ -0,0 +1,136 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * Simple timing harness comparing the scalar countSurroundingMines loop with the
+ * bitboard mine-count map on a randomly filled grid. Both results are checked against
+ * each other before any timings are printed.
+ *
+ * Usage: java GridBenchmark [rows] [cols] [mine density] [iterations]
+ */
+import java.util.Random;
+import static java.lang.Integer.parseInt;
+
+public class GridBenchmark {
+    private static final int DEFAULT_ROWS = 2000;
+    private static final int DEFAULT_COLS = 2000;
+    private static final double DEFAULT_DENSITY = 0.15;
+    private static final int DEFAULT_ITERATIONS = 10;
+    private static final long SEED = 42L;
+
+    private static final String MSG_MISMATCH = "Mismatch at (%d, %d): scalar %d, bitboard %d%n";
+    private static final String MSG_RESULT = "%-10s %10.2f ms/map %10.1f Mcells/s%n";
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional rows, cols, mine density and number of timed iterations
+     */
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? parseInt(args[0]) : DEFAULT_ROWS;
+        int cols = args.length > 1 ? parseInt(args[1]) : DEFAULT_COLS;
+        double density = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_DENSITY;
+        int iterations = args.length > 3 ? parseInt(args[3]) : DEFAULT_ITERATIONS;
+
+        Grid grid = createRandomGrid(rows, cols, density);
+        if (!verify(grid, rows, cols)) {
+            return;
+        }
+
+        // Warm up both paths so the timed runs measure compiled code
+        for (int i = 0; i < iterations; i++) {
+            scalarCountMap(grid, rows, cols);
+            grid.getMineCountMap();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            scalarCountMap(grid, rows, cols);
+        }
+        report("scalar", System.nanoTime() - start, iterations, rows, cols);
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            grid.getMineCountMap();
+        }
+        report("bitboard", System.nanoTime() - start, iterations, rows, cols);
+    }
+
+    /**
+     * Creates a grid with mines placed at random with the given density, then clears
+     * one random cell per row.
+     *
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @param density Probability of each cell holding a mine
+     * @return The filled grid
+     */
+    private static Grid createRandomGrid(int rows, int cols, double density) {
+        Random random = new Random(SEED);
+        char[][] gridData = new char[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                gridData[i][j] = random.nextDouble() < density ? Game.MINE_CELL : Game.EMPTY_CELL;
+            }
+        }
+        Grid grid = new Grid(new GameMap(rows, cols, gridData));
+        // Clear some cells so the per-game changes are part of what gets verified
+        for (int i = 0; i < rows; i++) {
+            grid.clearCell(new Position(i + 1, random.nextInt(cols) + 1));
+        }
+        return grid;
+    }
+
+    /**
+     * Builds the mine-count map one cell at a time through countSurroundingMines.
+     *
+     * @param grid The grid to scan
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @return A rows x cols array with the mine count around each cell
+     */
+    private static byte[][] scalarCountMap(Grid grid, int rows, int cols) {
+        byte[][] counts = new byte[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                counts[i][j] = (byte) grid.countSurroundingMines(new Position(i + 1, j + 1));
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Checks that the scalar and bitboard maps agree on every cell.
+     *
+     * @param grid The grid to scan
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @return true if both maps are identical
+     */
+    private static boolean verify(Grid grid, int rows, int cols) {
+        byte[][] expected = scalarCountMap(grid, rows, cols);
+        byte[][] actual = grid.getMineCountMap();
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (expected[i][j] != actual[i][j]) {
+                    System.out.printf(MSG_MISMATCH, i + 1, j + 1, expected[i][j], actual[i][j]);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Prints the average time per map and the cell throughput of one variant.
+     *
+     * @param name The name of the variant
+     * @param nanos Total elapsed time in nanoseconds
+     * @param iterations Number of maps built
+     * @param rows Number of rows
+     * @param cols Number of columns
+     */
+    private static void report(String name, long nanos, int iterations, int rows, int cols) {
+        double millis = nanos / 1e6 / iterations;
+        double cellsPerSecond = (double) rows * cols * iterations / (nanos / 1e9);
+        System.out.printf(MSG_RESULT, name, millis, cellsPerSecond / 1e6);
+    }
+}
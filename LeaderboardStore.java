@@ -0,0 +1,771 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * A persistent store of statistics per player name, aggregated over any number of games:
+ * wins by crystal, wins as the last survivor, eliminations and total moves. It uses two
+ * files next to each other:
+ * - NAME.dat: an append-only sequence of player records. Each record holds the four
+ *   counters followed by the length and UTF-8 bytes of the name, padded to 8 bytes.
+ *   Records never move, and the file is mapped into memory in 64 MiB segments that
+ *   records never cross.
+ * - NAME.idx: a memory-mapped open-addressing hash table from name hash to record
+ *   position, with a header holding the number of players, the end of the data and the
+ *   position of the last record appended.
+ *
+ * Counters are updated in place with atomic adds on the mapped memory, so game threads
+ * never lock to record results. Lookups do not lock either; only adding a new player
+ * takes the store's lock. Reopening a store maps both files as they are and only reads the
+ * last record appended, to index it again if a crash stopped the append before its slot
+ * was written; the index is only rebuilt from the data if it is missing or damaged.
+ * Top-N queries are served from a sorted snapshot, refreshed on demand or periodically.
+ */
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class LeaderboardStore {
+    public static final int STAT_CRYSTAL_WINS = 0;
+    public static final int STAT_SURVIVOR_WINS = 1;
+    public static final int STAT_ELIMINATIONS = 2;
+    public static final int STAT_TOTAL_MOVES = 3;
+    private static final int STATS = 4;
+
+    private static final String DATA_SUFFIX = ".dat";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Layout of the index header; the slots start right after it.
+     */
+    private static final int MAGIC = 0x534C4252;
+    private static final int VERSION = 1;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int COUNT_OFFSET = 12;
+    private static final int DATA_END_OFFSET = 16;
+    private static final int LAST_RECORD_OFFSET = 24;
+    private static final int INDEX_HEADER_BYTES = 64;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long EMPTY_SLOT = 0;
+
+    /**
+     * Layout of a data record: the counters, then the name length and bytes.
+     */
+    private static final long SEGMENT_BYTES = 64L << 20;
+    private static final int LENGTH_OFFSET = STATS * Long.BYTES;
+    private static final int NAME_OFFSET = LENGTH_OFFSET + Integer.BYTES;
+    private static final int ALIGNMENT = Long.BYTES;
+
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final String dataFile;
+    private final String indexFile;
+    private final FileChannel dataChannel;
+    private volatile MappedByteBuffer[] segments;
+    private volatile Index index;
+    private volatile long dataEnd;
+    private volatile Standing[][] ranking;
+    private ScheduledExecutorService refresher;
+
+    /**
+     * Opens a store, creating its files if they do not exist.
+     *
+     * @param path The path of the store, without the file suffixes
+     * @throws IllegalArgumentException if the files cannot be opened
+     */
+    public LeaderboardStore(String path) {
+        this.dataFile = path + DATA_SUFFIX;
+        this.indexFile = path + INDEX_SUFFIX;
+        this.segments = new MappedByteBuffer[0];
+        this.ranking = new Standing[STATS][0];
+        try {
+            this.dataChannel = FileChannel.open(Paths.get(dataFile), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+            Index existing = openIndex();
+            if (existing != null) {
+                index = existing;
+                dataEnd = existing.buffer.getLong(DATA_END_OFFSET);
+                mapUpTo(dataEnd);
+                if (!recoverLastRecord()) {
+                    rebuildIndex();
+                }
+            } else {
+                rebuildIndex();
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException(dataFile);
+        }
+    }
+
+    /**
+     * Adds an amount to a counter of a player, creating the player if needed.
+     * Safe to call from any number of threads.
+     *
+     * @param name The name of the player
+     * @param stat The counter to update, one of the STAT_ constants
+     * @param delta The amount to add
+     */
+    public void add(String name, int stat, long delta) {
+        long offset = findOrCreate(name);
+        LONGS.getAndAdd(segmentOf(offset), local(offset) + stat * Long.BYTES, delta);
+    }
+
+    /**
+     * Gets a counter of a player.
+     *
+     * @param name The name of the player
+     * @param stat The counter to read, one of the STAT_ constants
+     * @return The value of the counter, 0 for unknown players
+     */
+    public long get(String name, int stat) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        long offset = find(index, bytes, hash(bytes));
+        if (offset < 0) {
+            return 0;
+        }
+        return (long) LONGS.getVolatile(segmentOf(offset), local(offset) + stat * Long.BYTES);
+    }
+
+    /**
+     * Records the results of a finished game for all of its players: a win for the player
+     * who collected the crystal or for the last active player, an elimination for every
+     * eliminated player, and the moves made by everyone.
+     *
+     * @param game The finished game
+     */
+    public void recordGame(Game game) {
+        for (int i = 0; i < game.getPlayerCount(); i++) {
+            Player player = game.getPlayer(i);
+            String name = player.getName();
+            if (player.hasCollectedCrystal()) {
+                add(name, STAT_CRYSTAL_WINS, 1);
+            } else if (game.isGameOver() && !game.isCrystalCollected() && !player.isEliminated()) {
+                add(name, STAT_SURVIVOR_WINS, 1);
+            }
+            if (player.isEliminated()) {
+                add(name, STAT_ELIMINATIONS, 1);
+            }
+            add(name, STAT_TOTAL_MOVES, player.getTotalMoves());
+        }
+    }
+
+    /**
+     * Gets the players with the highest values of a counter, as of the last refresh of the
+     * ranking. Ties are ordered by name.
+     *
+     * @param stat The counter to rank by, one of the STAT_ constants
+     * @param n The maximum number of players to return
+     * @return The best players, best first
+     */
+    public Standing[] getTop(int stat, int n) {
+        Standing[] sorted = ranking[stat];
+        return Arrays.copyOf(sorted, Math.min(n, sorted.length));
+    }
+
+    /**
+     * Rebuilds the sorted ranking of every counter from the current records. Runs
+     * alongside updates, so counters changing during the refresh may be seen at any
+     * value they had while it ran.
+     */
+    public void refreshRanking() {
+        List<String> names = new ArrayList<>();
+        List<long[]> counters = new ArrayList<>();
+        long end = dataEnd;
+        MappedByteBuffer[] mapped = segments;
+        for (long offset = nextRecord(mapped, 0, end); offset < end; offset = nextRecord(mapped, offset, end)) {
+            MappedByteBuffer buffer = mapped[(int) (offset / SEGMENT_BYTES)];
+            int local = local(offset);
+            long[] values = new long[STATS];
+            for (int stat = 0; stat < STATS; stat++) {
+                values[stat] = (long) LONGS.getVolatile(buffer, local + stat * Long.BYTES);
+            }
+            names.add(readName(buffer, local));
+            counters.add(values);
+            offset += recordBytes(buffer.getInt(local + LENGTH_OFFSET));
+        }
+
+        Standing[][] sorted = new Standing[STATS][names.size()];
+        for (int stat = 0; stat < STATS; stat++) {
+            for (int i = 0; i < names.size(); i++) {
+                sorted[stat][i] = new Standing(names.get(i), counters.get(i)[stat]);
+            }
+            Arrays.sort(sorted[stat], Comparator.comparingLong((Standing p) -> -p.value)
+                    .thenComparing(p -> p.name));
+        }
+        ranking = sorted;
+    }
+
+    /**
+     * Refreshes the ranking in the background at a fixed period, until the store is closed.
+     *
+     * @param periodMillis The time between refreshes in milliseconds
+     */
+    public synchronized void startRefreshing(long periodMillis) {
+        if (refresher == null) {
+            refresher = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task);
+                thread.setDaemon(true);
+                return thread;
+            });
+            refresher.scheduleAtFixedRate(this::refreshRanking, 0, periodMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Gets the number of players in the store.
+     *
+     * @return The player count
+     */
+    public int getPlayerCount() {
+        return index.buffer.getInt(COUNT_OFFSET);
+    }
+
+    /**
+     * Writes every change made so far to disk.
+     */
+    public synchronized void flush() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        index.buffer.force();
+    }
+
+    /**
+     * Stops the background refresh, writes every change to disk and closes the data file.
+     *
+     * @throws IllegalArgumentException if the data file cannot be closed
+     */
+    public synchronized void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher = null;
+        }
+        flush();
+        try {
+            dataChannel.close();
+        } catch (IOException e) {
+            throw new IllegalArgumentException(dataFile);
+        }
+    }
+
+    /**
+     * Finds the record of a player, appending a new one if the player is not in the store.
+     *
+     * @param name The name of the player
+     * @return The position of the record in the data file
+     */
+    private long findOrCreate(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(bytes);
+        long offset = find(index, bytes, hash);
+        if (offset >= 0) {
+            return offset;
+        }
+        synchronized (this) {
+            offset = find(index, bytes, hash);
+            return offset >= 0 ? offset : append(name, bytes, hash);
+        }
+    }
+
+    /**
+     * Looks a name up in an index.
+     *
+     * @param table The index to search
+     * @param name The UTF-8 bytes of the name
+     * @param hash The hash of the name
+     * @return The position of the record, or -1 if the name is not in the index
+     */
+    private long find(Index table, byte[] name, int hash) {
+        for (int i = hash & table.mask; ; i = (i + 1) & table.mask) {
+            long slot = (long) LONGS.getAcquire(table.buffer, slotOffset(i));
+            if (slot == EMPTY_SLOT) {
+                return -1;
+            }
+            if ((int) (slot >>> Integer.SIZE) == hash) {
+                long offset = recordOffset(slot);
+                if (nameEquals(offset, name)) {
+                    return offset;
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends the record of a new player and adds it to the index. Called with the lock held.
+     * The record is written before the end of the data moves past it, and the end moves
+     * before the index points at it. A crash before the end moves loses the record, which
+     * the next append overwrites; a crash after it leaves the record without a slot, which
+     * recoverLastRecord indexes when the store is reopened.
+     *
+     * @param name The name of the player
+     * @param bytes The UTF-8 bytes of the name
+     * @param hash The hash of the name
+     * @return The position of the new record
+     * @throws IllegalArgumentException if the name is empty or too long for a record
+     */
+    private long append(String name, byte[] bytes, int hash) {
+        long size = recordBytes(bytes.length);
+        if (bytes.length == 0 || size > SEGMENT_BYTES) {
+            throw new IllegalArgumentException(name);
+        }
+        long offset = dataEnd;
+        long segmentEnd = (offset / SEGMENT_BYTES + 1) * SEGMENT_BYTES;
+        if (offset + size > segmentEnd) {
+            offset = segmentEnd;
+        }
+        try {
+            mapUpTo(offset + size);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(dataFile);
+        }
+
+        MappedByteBuffer buffer = segmentOf(offset);
+        int local = local(offset);
+        for (int stat = 0; stat < STATS; stat++) {
+            buffer.putLong(local + stat * Long.BYTES, 0);
+        }
+        buffer.putInt(local + LENGTH_OFFSET, bytes.length);
+        buffer.put(local + NAME_OFFSET, bytes);
+        if (local + size + NAME_OFFSET <= SEGMENT_BYTES) {
+            buffer.putInt((int) (local + size + LENGTH_OFFSET), 0);
+        }
+        dataEnd = offset + size;
+        index.buffer.putLong(LAST_RECORD_OFFSET, offset);
+        index.buffer.putLong(DATA_END_OFFSET, dataEnd);
+        addSlot(((long) hash << Integer.SIZE) | (offset / ALIGNMENT + 1));
+        return offset;
+    }
+
+    /**
+     * Adds the slot of a record to the index, growing the index first if it would become
+     * more than half full. Called with the lock held.
+     *
+     * @param slot The slot value: name hash in the high half, record number plus one in the low half
+     */
+    private void addSlot(long slot) {
+        int count = index.buffer.getInt(COUNT_OFFSET) + 1;
+        if (count * 2L > index.capacity) {
+            index = grow(index, index.capacity * 2);
+        }
+        insert(index, slot);
+        index.buffer.putInt(COUNT_OFFSET, count);
+    }
+
+    /**
+     * Repairs an index reopened after a crash in the middle of an append. Appends run one
+     * at a time, so only the last record can miss its slot; it is indexed again if so. The
+     * player count, written after the slot, is recounted from the slots.
+     *
+     * @return false if the last record is damaged and the index must be rebuilt
+     */
+    private boolean recoverLastRecord() {
+        index.buffer.putInt(COUNT_OFFSET, countSlots(index));
+        long last = index.buffer.getLong(LAST_RECORD_OFFSET);
+        if (last >= dataEnd) {
+            return true;
+        }
+        int length = last < 0 ? -1 : nameLength(segments, last, dataEnd);
+        if (length < 0) {
+            return false;
+        }
+        byte[] name = new byte[length];
+        segmentOf(last).get(local(last) + NAME_OFFSET, name);
+        int hash = hash(name);
+        if (find(index, name, hash) < 0) {
+            addSlot(((long) hash << Integer.SIZE) | (last / ALIGNMENT + 1));
+        }
+        return true;
+    }
+
+    /**
+     * Counts the used slots of an index.
+     *
+     * @param table The index
+     * @return The number of players in the index
+     */
+    private static int countSlots(Index table) {
+        int count = 0;
+        for (int i = 0; i < table.capacity; i++) {
+            if ((long) LONGS.getAcquire(table.buffer, slotOffset(i)) != EMPTY_SLOT) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Puts a slot value into the first free slot of its probe sequence.
+     *
+     * @param table The index to update
+     * @param slot The slot value: name hash in the high half, record number plus one in the low half
+     */
+    private static void insert(Index table, long slot) {
+        int i = (int) (slot >>> Integer.SIZE) & table.mask;
+        while ((long) LONGS.getAcquire(table.buffer, slotOffset(i)) != EMPTY_SLOT) {
+            i = (i + 1) & table.mask;
+        }
+        LONGS.setRelease(table.buffer, slotOffset(i), slot);
+    }
+
+    /**
+     * Copies an index into a new, larger index file and puts it in place of the old one.
+     * Slots carry the name hash, so no record is read. Readers still using the old index
+     * keep finding every player it held.
+     *
+     * @param old The index to copy
+     * @param capacity The number of slots of the new index
+     * @return The new index
+     */
+    private Index grow(Index old, int capacity) {
+        Index table = createIndex(capacity);
+        for (int i = 0; i < old.capacity; i++) {
+            long slot = (long) LONGS.getAcquire(old.buffer, slotOffset(i));
+            if (slot != EMPTY_SLOT) {
+                insert(table, slot);
+            }
+        }
+        table.buffer.putInt(COUNT_OFFSET, old.buffer.getInt(COUNT_OFFSET));
+        table.buffer.putLong(DATA_END_OFFSET, dataEnd);
+        table.buffer.putLong(LAST_RECORD_OFFSET, old.buffer.getLong(LAST_RECORD_OFFSET));
+        install(table);
+        return table;
+    }
+
+    /**
+     * Maps the index file if it exists and is valid.
+     *
+     * @return The index, or null if it must be rebuilt
+     * @throws IOException if the file cannot be read
+     */
+    private Index openIndex() throws IOException {
+        Path path = Paths.get(indexFile);
+        if (!Files.exists(path) || Files.size(path) < INDEX_HEADER_BYTES) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int capacity = buffer.getInt(CAPACITY_OFFSET);
+            if (buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(VERSION_OFFSET) != VERSION
+                    || Integer.bitCount(capacity) != 1
+                    || channel.size() != INDEX_HEADER_BYTES + (long) capacity * Long.BYTES
+                    || buffer.getLong(DATA_END_OFFSET) > dataChannel.size()) {
+                return null;
+            }
+            return new Index(buffer, capacity);
+        }
+    }
+
+    /**
+     * Creates a new index from the records of the data file. The scan stops at the first
+     * record with a negative name length or a name running past its segment or the file,
+     * which is taken as the end of the data, like the unused space after a lost append.
+     *
+     * @throws IOException if the data file cannot be read
+     */
+    private void rebuildIndex() throws IOException {
+        long fileEnd = dataChannel.size();
+        mapUpTo(fileEnd);
+        MappedByteBuffer[] mapped = segments;
+        List<Long> slots = new ArrayList<>();
+        long offset = nextRecord(mapped, 0, fileEnd);
+        while (offset < fileEnd) {
+            MappedByteBuffer buffer = mapped[(int) (offset / SEGMENT_BYTES)];
+            int length = nameLength(mapped, offset, fileEnd);
+            if (length < 0) {
+                break;
+            }
+            byte[] name = new byte[length];
+            buffer.get(local(offset) + NAME_OFFSET, name);
+            slots.add(((long) hash(name) << Integer.SIZE) | (offset / ALIGNMENT + 1));
+            offset = nextRecord(mapped, offset + recordBytes(length), fileEnd);
+        }
+        long last = slots.isEmpty() ? 0 : recordOffset(slots.get(slots.size() - 1));
+        dataEnd = slots.isEmpty() ? 0 : recordEnd(mapped, last);
+
+        int capacity = INITIAL_CAPACITY;
+        while (slots.size() * 2L > capacity) {
+            capacity *= 2;
+        }
+        Index table = createIndex(capacity);
+        for (long slot : slots) {
+            insert(table, slot);
+        }
+        table.buffer.putInt(COUNT_OFFSET, slots.size());
+        table.buffer.putLong(DATA_END_OFFSET, dataEnd);
+        table.buffer.putLong(LAST_RECORD_OFFSET, last);
+        install(table);
+        index = table;
+    }
+
+    /**
+     * Creates an empty index in a temporary file.
+     *
+     * @param capacity The number of slots, a power of two
+     * @return The new index
+     */
+    private Index createIndex(int capacity) {
+        Path temp = Paths.get(indexFile + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    INDEX_HEADER_BYTES + (long) capacity * Long.BYTES);
+            buffer.putInt(MAGIC_OFFSET, MAGIC);
+            buffer.putInt(VERSION_OFFSET, VERSION);
+            buffer.putInt(CAPACITY_OFFSET, capacity);
+            return new Index(buffer, capacity);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(indexFile);
+        }
+    }
+
+    /**
+     * Writes a new index to disk and renames it over the index file, so the file on disk
+     * is always either the old or the new index.
+     *
+     * @param table The index created by createIndex
+     */
+    private void install(Index table) {
+        table.buffer.force();
+        try {
+            Files.move(Paths.get(indexFile + TEMP_SUFFIX), Paths.get(indexFile),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(indexFile);
+        }
+    }
+
+    /**
+     * Maps the data file segments needed to reach a position, growing the file if needed.
+     *
+     * @param end The position that must be mapped
+     * @throws IOException if the file cannot be mapped
+     */
+    private void mapUpTo(long end) throws IOException {
+        int needed = (int) ((end + SEGMENT_BYTES - 1) / SEGMENT_BYTES);
+        MappedByteBuffer[] mapped = segments;
+        if (needed <= mapped.length) {
+            return;
+        }
+        MappedByteBuffer[] grown = Arrays.copyOf(mapped, needed);
+        for (int i = mapped.length; i < needed; i++) {
+            grown[i] = dataChannel.map(FileChannel.MapMode.READ_WRITE, i * SEGMENT_BYTES, SEGMENT_BYTES);
+        }
+        segments = grown;
+    }
+
+    /**
+     * Finds the first record at or after a position. The unused end of a segment holds a
+     * zero name length, so a zero length means the next record starts on the next segment.
+     *
+     * @param mapped The mapped segments
+     * @param offset The position to start from
+     * @param end The end of the data
+     * @return The position of the record, or a position at or after end if there is none
+     */
+    private static long nextRecord(MappedByteBuffer[] mapped, long offset, long end) {
+        while (offset < end) {
+            int segment = (int) (offset / SEGMENT_BYTES);
+            int local = local(offset);
+            if (segment >= mapped.length) {
+                return end;
+            }
+            if (local + NAME_OFFSET <= SEGMENT_BYTES && mapped[segment].getInt(local + LENGTH_OFFSET) != 0) {
+                return offset;
+            }
+            offset = (segment + 1) * SEGMENT_BYTES;
+        }
+        return end;
+    }
+
+    /**
+     * Reads the name length of a record, checking that the name fits in the record's
+     * segment and before an end position.
+     *
+     * @param mapped The mapped segments
+     * @param offset The position of the record
+     * @param end The end of the data
+     * @return The name length, or -1 if the record is damaged
+     */
+    private static int nameLength(MappedByteBuffer[] mapped, long offset, long end) {
+        int local = local(offset);
+        if (local + NAME_OFFSET > SEGMENT_BYTES || offset + NAME_OFFSET > end) {
+            return -1;
+        }
+        int length = mapped[(int) (offset / SEGMENT_BYTES)].getInt(local + LENGTH_OFFSET);
+        long size = (long) NAME_OFFSET + length;
+        if (length <= 0 || local + size > SEGMENT_BYTES || offset + size > end) {
+            return -1;
+        }
+        return length;
+    }
+
+    /**
+     * Gets the position right after a record.
+     *
+     * @param mapped The mapped segments
+     * @param offset The position of the record
+     * @return The position of the end of the record
+     */
+    private static long recordEnd(MappedByteBuffer[] mapped, long offset) {
+        MappedByteBuffer buffer = mapped[(int) (offset / SEGMENT_BYTES)];
+        return offset + recordBytes(buffer.getInt(local(offset) + LENGTH_OFFSET));
+    }
+
+    /**
+     * Checks if the record at a position holds a name.
+     *
+     * @param offset The position of the record
+     * @param name The UTF-8 bytes of the name
+     * @return true if the record belongs to the name
+     */
+    private boolean nameEquals(long offset, byte[] name) {
+        MappedByteBuffer buffer = segmentOf(offset);
+        int local = local(offset);
+        if (buffer.getInt(local + LENGTH_OFFSET) != name.length) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (buffer.get(local + NAME_OFFSET + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the name of the record at a position of a segment.
+     *
+     * @param buffer The segment
+     * @param local The position of the record in the segment
+     * @return The name
+     */
+    private static String readName(MappedByteBuffer buffer, int local) {
+        byte[] name = new byte[buffer.getInt(local + LENGTH_OFFSET)];
+        buffer.get(local + NAME_OFFSET, name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the segment holding a position of the data file.
+     *
+     * @param offset The position in the data file
+     * @return The mapped segment
+     */
+    private MappedByteBuffer segmentOf(long offset) {
+        return segments[(int) (offset / SEGMENT_BYTES)];
+    }
+
+    /**
+     * Gets the position of a data file position inside its segment.
+     *
+     * @param offset The position in the data file
+     * @return The position in the segment
+     */
+    private static int local(long offset) {
+        return (int) (offset % SEGMENT_BYTES);
+    }
+
+    /**
+     * Gets the size of a record, padded so that the next record stays aligned.
+     *
+     * @param nameLength The length of the name in bytes
+     * @return The record size in bytes
+     */
+    private static long recordBytes(int nameLength) {
+        return (NAME_OFFSET + nameLength + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * Gets the position of the record a slot points to.
+     *
+     * @param slot The slot value
+     * @return The position of the record in the data file
+     */
+    private static long recordOffset(long slot) {
+        return ((slot & 0xFFFFFFFFL) - 1) * ALIGNMENT;
+    }
+
+    /**
+     * Gets the position of a slot in the index buffer.
+     *
+     * @param slot The slot number
+     * @return The byte position of the slot
+     */
+    private static int slotOffset(int slot) {
+        return INDEX_HEADER_BYTES + slot * Long.BYTES;
+    }
+
+    /**
+     * Hashes the bytes of a name, spreading the bits used to pick the first slot.
+     *
+     * @param name The UTF-8 bytes of the name
+     * @return The hash
+     */
+    private static int hash(byte[] name) {
+        int hash = Arrays.hashCode(name) * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * A mapped index file.
+     */
+    private static class Index {
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private final int mask;
+
+        private Index(MappedByteBuffer buffer, int capacity) {
+            this.buffer = buffer;
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+        }
+    }
+
+    /**
+     * A player and the value of a counter, as returned by getTop.
+     */
+    public static class Standing {
+        private final String name;
+        private final long value;
+
+        private Standing(String name, long value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        /**
+         * Gets the name of the player.
+         *
+         * @return The player's name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the value of the counter the ranking was sorted by.
+         *
+         * @return The counter value
+         */
+        public long getValue() {
+            return value;
+        }
+    }
+}
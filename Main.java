@@ -11,12 +11,17 @@
  * The game loop processes commands like move, detect, skip, and rank until a quit command
  * is received or the game ends through crystal collection or player elimination.
  */
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.PrintStream;
 import java.util.Scanner;
 import static java.lang.Integer.parseInt;
 
 public class Main {
+    /**
+     * Maximum estimated size of the maps kept in the map cache.
+     */
+    private static final long MAP_CACHE_BYTES = 256L * 1024 * 1024;
+    private static final MapCache MAP_CACHE = new MapCache(MAP_CACHE_BYTES);
+
     /**
      * Command constants used for game actions.
      * These strings define the exact command words that the game recognizes
@@ -28,6 +33,13 @@ public class Main {
     private static final String CMD_RANK = "rank";
     private static final String CMD_QUIT = "quit";
 
+    /**
+     * Number of command parts of the detect scan variants:
+     * "detect radius" and "detect row1 col1 row2 col2".
+     */
+    private static final int DETECT_RADIUS_PARTS = 2;
+    private static final int DETECT_AREA_PARTS = 5;
+
     /**
      * Game state messages used to communicate game status and validity.
      * These messages handle core game flow events like game ending,
@@ -55,6 +67,8 @@ public class Main {
     private static final String MSG_STEPPED_MINE = "%s stepped into a proton mine%n";
     private static final String MSG_CRYSTAL_FOUND = "%s has won%n";
     private static final String MSG_MINES_AROUND = "There are %d mines around the cell%n";
+    private static final String MSG_MINES_IN_RADIUS = "There are %d mines within radius %d%n";
+    private static final String MSG_MINES_IN_AREA = "There are %d mines in the area%n";
     private static final String MSG_SKIP_TURN = "%s skipped their turn%n";
     private static final String MSG_RANK_FORMAT = "%s: (%d, %d) %d %s%n";
     private static final String MSG_PLAYER_ELIMINATED = "eliminated";
@@ -68,44 +82,46 @@ public class Main {
      */
     public static void main(String[] args) {
         Scanner in = new Scanner(System.in);
+        play(in, System.out);
+        in.close();
+    }
+
+    /**
+     * Plays one whole game: reads the map file name, the players and the commands from
+     * the input and writes every message to the output. Keeps no state of its own besides
+     * the shared map cache, so several games can be played at once on different streams.
+     *
+     * @param in Scanner object for reading the game input
+     * @param out The stream receiving the game messages
+     */
+    static void play(Scanner in, PrintStream out) {
         String filename = in.nextLine();
         Game game = createGame(filename);
 
-        initializePlayers(in, game);
-        processGameCommands(in, game);
+        initializePlayers(in, game, out);
+        processGameCommands(in, game, out);
+    }
 
-        in.close();
+    /**
+     * Gets the cache holding the maps read by every game of this process.
+     *
+     * @return The shared map cache
+     */
+    static MapCache getMapCache() {
+        return MAP_CACHE;
     }
 
     /**
-     * Initializes the game grid from a specified file.
-     * The file format should contain:
-     * - First line: two integers representing rows and columns
-     * - Subsequent lines: grid layout with characters representing different game elements
+     * Initializes the game grid from a specified file. Maps are read through a shared
+     * cache, so repeated games on the same unchanged file reuse the parsed map.
      *
      * @param filename The path to the grid configuration file
-     * @return A new Game object initialized with the file contents (rows, cols, gridData)
+     * @return A new Game object initialized with the map stored in the file
      * @throws IllegalArgumentException if the file is not found or has invalid format
+     * @see MapFile
      */
     private static Game createGame(String filename) {
-        Scanner fileScanner;
-        try {
-            fileScanner = new Scanner(new FileReader(filename));
-        } catch (FileNotFoundException e) {
-            throw new IllegalArgumentException(filename);
-        }
-
-        int rows = fileScanner.nextInt();
-        int cols = fileScanner.nextInt();
-        fileScanner.nextLine();
-
-        char[][] gridData = new char[rows][];
-        for (int i = 0; i < rows; i++) {
-            gridData[i] = fileScanner.nextLine().toCharArray();
-        }
-        fileScanner.close();
-
-        return new Game(rows, cols, gridData);
+        return new Game(MAP_CACHE.get(filename));
     }
 
     /**
@@ -114,15 +130,16 @@ public class Main {
      *
      * @param in Scanner object for reading player information
      * @param game The game instance to initialize players in
+     * @param out The stream receiving the game messages
      */
-    private static void initializePlayers(Scanner in, Game game) {
+    private static void initializePlayers(Scanner in, Game game, PrintStream out) {
         int numPlayers = in.nextInt();
         in.nextLine();
         game.initializePlayers(numPlayers);
 
         for (int i = 0; i < numPlayers; i++) {
             String playerInput = in.nextLine();
-            addPlayer(playerInput, game);
+            addPlayer(playerInput, game, out);
         }
     }
 
@@ -132,8 +149,9 @@ public class Main {
      *
      * @param in String containing player information
      * @param game The game instance to add the player to
+     * @param out The stream receiving the game messages
      */
-    private static void addPlayer(String in, Game game) {
+    private static void addPlayer(String in, Game game, PrintStream out) {
         String[] parts = in.split(" ", 4);
 
         int row = parseInt(parts[1]);
@@ -141,9 +159,9 @@ public class Main {
         String name = parts[3];
 
         if (game.addPlayer(row, col, name)) {
-            System.out.printf(MSG_PLAYER_ADDED, name);
+            out.printf(MSG_PLAYER_ADDED, name);
         } else {
-            System.out.printf(MSG_INVALID_PLACEMENT);
+            out.printf(MSG_INVALID_PLACEMENT);
         }
     }
 
@@ -153,13 +171,14 @@ public class Main {
      *
      * @param in Scanner object for reading commands
      * @param game The game instance to process commands for
+     * @param out The stream receiving the game messages
      */
-    private static void processGameCommands(Scanner in, Game game) {
+    private static void processGameCommands(Scanner in, Game game, PrintStream out) {
         String command;
         while (!(command = in.nextLine()).equals(CMD_QUIT)) {
-            processCommand(command, game);
+            processCommand(command, game, out);
         }
-        handleQuit(game);
+        handleQuit(game, out);
     }
 
     /**
@@ -168,22 +187,23 @@ public class Main {
      *
      * @param command The command string to process
      * @param game The game instance to execute the command on
+     * @param out The stream receiving the game messages
      */
-    private static void processCommand(String command, Game game) {
+    private static void processCommand(String command, Game game, PrintStream out) {
         String[] parts = command.split(" ");
         String action = parts[0];
 
         if (!isValidCommand(action)) {
-            System.out.printf(MSG_INVALID_COMMAND);
+            out.printf(MSG_INVALID_COMMAND);
             return;
         }
 
         if (game.isGameOver() && !action.equals(CMD_RANK)) {
-            System.out.printf(MSG_GAME_OVER);
+            out.printf(MSG_GAME_OVER);
             return;
         }
 
-        executeCommand(action, parts, game);
+        executeCommand(action, parts, game, out);
     }
 
     /**
@@ -197,6 +217,26 @@ public class Main {
         return command.matches(CMD_MOVE + "|" + CMD_DETECT + "|" + CMD_SKIP + "|" + CMD_RANK);
     }
 
+    /**
+     * Checks if a detect command has the form of a radius or rectangle scan: exactly one
+     * or exactly four arguments, all made of digits. Any other detect command is a plain
+     * detect around the player, as it always was.
+     *
+     * @param parts Array of command parts including the command itself
+     * @return true if the arguments select a radius or rectangle scan
+     */
+    private static boolean isScanDetect(String[] parts) {
+        if (parts.length != DETECT_RADIUS_PARTS && parts.length != DETECT_AREA_PARTS) {
+            return false;
+        }
+        for (int i = 1; i < parts.length; i++) {
+            if (!parts[i].matches("\\d+")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Executes the specified game command with given parameters.
      * Routes the command to appropriate handler method based on action type.
@@ -204,13 +244,14 @@ public class Main {
      * @param action The type of action to execute (move, detect, skip, rank)
      * @param parts Array of command parts including parameters
      * @param game The game instance to execute the command on
+     * @param out The stream receiving the game messages
      */
-    private static void executeCommand(String action, String[] parts, Game game) {
+    private static void executeCommand(String action, String[] parts, Game game, PrintStream out) {
         switch (action) {
-            case CMD_MOVE -> handleMove(parts[1], game);
-            case CMD_DETECT -> handleDetect(game);
-            case CMD_SKIP -> handleSkip(game);
-            case CMD_RANK -> handleRank(game);
+            case CMD_MOVE -> handleMove(parts[1], game, out);
+            case CMD_DETECT -> handleDetect(parts, game, out);
+            case CMD_SKIP -> handleSkip(game, out);
+            case CMD_RANK -> handleRank(game, out);
             default -> throw new IllegalStateException();
         }
     }
@@ -227,32 +268,53 @@ public class Main {
      * - Crystal finding
      * @param direction The direction to move the player
      * @param game The game instance to execute the movement in
+     * @param out The stream receiving the game messages
      */
-    private static void handleMove(String direction, Game game) {
+    private static void handleMove(String direction, Game game, PrintStream out) {
         int result = game.movePlayer(direction);
         int row = game.getPlayerRow();
         int col = game.getPlayerCol();
         switch (result) {
-            case Game.MOVE_SUCCESS -> System.out.printf(MSG_MOVE_RESULT, game.getName(), row, col);
-            case Game.MOVE_SUCCESS_PROTECTED -> System.out.printf(MSG_PROTECTED, game.getName());
-            case Game.MOVE_OUT_OF_BOUNDS -> System.out.printf(MSG_OUT_OF_BOUNDS, game.getName());
-            case Game.MOVE_POSITION_OCCUPIED -> System.out.printf(MSG_POSITION_TAKEN);
-            case Game.MOVE_MINE_HIT -> System.out.printf(MSG_STEPPED_MINE, game.getName());
-            case Game.MOVE_SHIELD_PICKUP -> System.out.printf(MSG_SHIELD_PICKUP, game.getName(), game.getShield());
-            case Game.MOVE_CRYSTAL_FOUND -> System.out.printf(MSG_CRYSTAL_FOUND, game.getName());
+            case Game.MOVE_SUCCESS -> out.printf(MSG_MOVE_RESULT, game.getName(), row, col);
+            case Game.MOVE_SUCCESS_PROTECTED -> out.printf(MSG_PROTECTED, game.getName());
+            case Game.MOVE_OUT_OF_BOUNDS -> out.printf(MSG_OUT_OF_BOUNDS, game.getName());
+            case Game.MOVE_POSITION_OCCUPIED -> out.printf(MSG_POSITION_TAKEN);
+            case Game.MOVE_MINE_HIT -> out.printf(MSG_STEPPED_MINE, game.getName());
+            case Game.MOVE_SHIELD_PICKUP -> out.printf(MSG_SHIELD_PICKUP, game.getName(), game.getShield());
+            case Game.MOVE_CRYSTAL_FOUND -> out.printf(MSG_CRYSTAL_FOUND, game.getName());
             default -> throw new IllegalStateException();
         }
     }
 
     /**
      * Handles mine detection command.
-     * Displays the number of mines in adjacent positions to the current player.
+     * Displays the number of mines in adjacent positions to the current player,
+     * within a given radius of the player, or inside a given rectangle. Scan arguments
+     * too large for an int are rejected as an invalid command.
      *
+     * @param parts Array of command parts including the detect arguments
      * @param game The game instance to perform detection in
+     * @param out The stream receiving the game messages
      */
-    private static void handleDetect(Game game) {
-        System.out.printf(MSG_MINES_AROUND, game.detect());
-
+    private static void handleDetect(String[] parts, Game game, PrintStream out) {
+        if (!isScanDetect(parts)) {
+            out.printf(MSG_MINES_AROUND, game.detect());
+            return;
+        }
+        int[] args = new int[parts.length - 1];
+        try {
+            for (int i = 0; i < args.length; i++) {
+                args[i] = parseInt(parts[i + 1]);
+            }
+        } catch (NumberFormatException e) {
+            out.printf(MSG_INVALID_COMMAND);
+            return;
+        }
+        if (parts.length == DETECT_RADIUS_PARTS) {
+            out.printf(MSG_MINES_IN_RADIUS, game.detectInRadius(args[0]), args[0]);
+        } else {
+            out.printf(MSG_MINES_IN_AREA, game.detectInArea(args[0], args[1], args[2], args[3]));
+        }
     }
 
     /**
@@ -260,10 +322,11 @@ public class Main {
      * Allows current player to skip their turn and moves to next player.
      *
      * @param game The game instance to skip turn in
+     * @param out The stream receiving the game messages
      */
-    private static void handleSkip(Game game) {
+    private static void handleSkip(Game game, PrintStream out) {
         game.skip();
-        System.out.printf(MSG_SKIP_TURN, game.getName());
+        out.printf(MSG_SKIP_TURN, game.getName());
     }
 
     /**
@@ -273,13 +336,14 @@ public class Main {
      * - Shield duration
      * - Elimination status
      * @param game The game instance to display rankings for
+     * @param out The stream receiving the game messages
      */
-    private static void handleRank(Game game) {
+    private static void handleRank(Game game, PrintStream out) {
         MyIterator iterator = game.getRankedPlayers();
 
         while (iterator.hasNext()) {
             Player p = iterator.next();
-            System.out.printf(MSG_RANK_FORMAT,
+            out.printf(MSG_RANK_FORMAT,
                     p.getName(),
                     p.getPosition().getRow(),
                     p.getPosition().getColumn(),
@@ -295,18 +359,19 @@ public class Main {
      * - Crystal collection
      * - Last player standing
      * @param game The game instance to handle quit for
+     * @param out The stream receiving the game messages
      */
-    private static void handleQuit(Game game) {
+    private static void handleQuit(Game game, PrintStream out) {
         if (!game.isGameOver()) {
-            System.out.printf(MSG_GAME_NOT_OVER);
+            out.printf(MSG_GAME_NOT_OVER);
             return;
         }
 
         String winner = game.getWinner();
         if (game.isCrystalCollected()) {
-            System.out.printf(MSG_WINNER_CRYSTAL, winner);
+            out.printf(MSG_WINNER_CRYSTAL, winner);
         } else {
-            System.out.printf(MSG_WINNER_LAST, winner);
+            out.printf(MSG_WINNER_LAST, winner);
         }
     }
 }
\ No newline at end of file
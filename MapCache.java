@@ -0,0 +1,171 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * Caches parsed maps so that games started on the same map file share one GameMap.
+ * Entries are keyed by the file path and only reused while the file keeps the same size
+ * and modification time; a changed file is read again. When the total size of the
+ * cached maps exceeds the byte budget, the least recently used maps are evicted.
+ * Lookups on different paths never wait for each other: the cache has no global lock.
+ */
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MapCache {
+    private final ConcurrentHashMap<String, CachedMap> entries;
+    private final long byteBudget;
+    private final AtomicLong usedBytes;
+    private final AtomicLong clock;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+
+    public MapCache(long byteBudget) {
+        this.byteBudget = byteBudget;
+        this.entries = new ConcurrentHashMap<>();
+        this.usedBytes = new AtomicLong();
+        this.clock = new AtomicLong();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.evictions = new AtomicLong();
+    }
+
+    /**
+     * Returns the map stored in a file, reading it only if it is not cached or if the
+     * file changed on disk since it was cached.
+     *
+     * @param filename The path to the map file
+     * @return The shared GameMap for the file
+     * @throws IllegalArgumentException if the file is not found or cannot be read
+     */
+    public GameMap get(String filename) {
+        Path path = Paths.get(filename).toAbsolutePath().normalize();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(filename);
+        }
+        long size = attributes.size();
+        long modified = attributes.lastModifiedTime().toMillis();
+        String key = path.toString();
+
+        CachedMap cached = entries.get(key);
+        if (cached != null && cached.matches(size, modified)) {
+            hits.incrementAndGet();
+            cached.lastUsed = clock.incrementAndGet();
+            return cached.map;
+        }
+
+        // Only callers of this same key wait while the file is read
+        CachedMap entry = entries.compute(key, (k, current) -> {
+            if (current != null && current.matches(size, modified)) {
+                hits.incrementAndGet();
+                return current;
+            }
+            misses.incrementAndGet();
+            CachedMap loaded = new CachedMap(MapFile.read(filename), size, modified);
+            usedBytes.addAndGet(loaded.bytes - (current != null ? current.bytes : 0));
+            return loaded;
+        });
+        entry.lastUsed = clock.incrementAndGet();
+        evictIfNeeded(entry);
+        return entry.map;
+    }
+
+    /**
+     * Evicts least recently used entries until the cache fits in its budget. The entry
+     * that was just requested is never evicted, even if it is larger than the budget.
+     *
+     * @param keep The entry that must stay in the cache
+     */
+    private void evictIfNeeded(CachedMap keep) {
+        while (usedBytes.get() > byteBudget) {
+            String oldestKey = null;
+            CachedMap oldest = null;
+            for (Map.Entry<String, CachedMap> candidate : entries.entrySet()) {
+                CachedMap value = candidate.getValue();
+                if (value != keep && (oldest == null || value.lastUsed < oldest.lastUsed)) {
+                    oldestKey = candidate.getKey();
+                    oldest = value;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            if (entries.remove(oldestKey, oldest)) {
+                usedBytes.addAndGet(-oldest.bytes);
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of lookups answered from the cache.
+     *
+     * @return The hit count
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of lookups that had to read the map file.
+     *
+     * @return The miss count
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of maps evicted to stay within the byte budget.
+     *
+     * @return The eviction count
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Gets the estimated size of all cached maps.
+     *
+     * @return The number of bytes currently used by the cache
+     */
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * A cached map together with the file identity it was read from.
+     */
+    private static class CachedMap {
+        private final GameMap map;
+        private final long size;
+        private final long modified;
+        private final long bytes;
+        private volatile long lastUsed;
+
+        private CachedMap(GameMap map, long size, long modified) {
+            this.map = map;
+            this.size = size;
+            this.modified = modified;
+            this.bytes = map.getSizeInBytes();
+        }
+
+        /**
+         * Checks if this entry was read from a file with the given size and modification time.
+         *
+         * @param size The current file size in bytes
+         * @param modified The current modification time in milliseconds
+         * @return true if the cached map is still up to date
+         */
+        private boolean matches(long size, long modified) {
+            return this.size == size && this.modified == modified;
+        }
+    }
+}
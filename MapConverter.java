@@ -0,0 +1,44 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * Command line tool converting map files between the text and the binary format.
+ * The format of the input is detected from its header and the output is written in
+ * the other format.
+ *
+ * Usage: java MapConverter <input map> <output map>
+ */
+import java.io.File;
+import java.io.IOException;
+
+public class MapConverter {
+    private static final String MSG_USAGE = "Usage: java MapConverter <input map> <output map>%n";
+    private static final String MSG_CONVERTED = "Converted %s (%s, %d bytes) to %s (%s, %d bytes)%n";
+    private static final String FORMAT_TEXT = "text";
+    private static final String FORMAT_BINARY = "binary";
+
+    /**
+     * Converts the input map into the other format.
+     *
+     * @param args The input and output file paths
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.printf(MSG_USAGE);
+            return;
+        }
+        String input = args[0];
+        String output = args[1];
+
+        boolean binaryInput = BinaryMapFile.isBinary(input);
+        GameMap map = MapFile.read(input);
+        if (binaryInput) {
+            MapFile.writeText(map, output);
+        } else {
+            BinaryMapFile.write(map, output);
+        }
+
+        System.out.printf(MSG_CONVERTED,
+                input, binaryInput ? FORMAT_BINARY : FORMAT_TEXT, new File(input).length(),
+                output, binaryInput ? FORMAT_TEXT : FORMAT_BINARY, new File(output).length());
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * Reads and writes map files. Two formats are supported: the binary format described in
+ * BinaryMapFile, recognized by its header, and the text format, which contains:
+ * - First line: two integers representing rows and columns
+ * - Subsequent lines: grid layout with characters representing different game elements
+ */
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Scanner;
+
+public class MapFile {
+
+    /**
+     * Reads and parses a map file in either format.
+     *
+     * @param filename The path to the map file
+     * @return A new GameMap with the file contents
+     * @throws IllegalArgumentException if the file is not found or cannot be read
+     */
+    public static GameMap read(String filename) {
+        try {
+            if (BinaryMapFile.isBinary(filename)) {
+                return BinaryMapFile.read(filename);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException(filename);
+        }
+        return readText(filename);
+    }
+
+    /**
+     * Reads and parses a map file in the text format.
+     *
+     * @param filename The path to the map file
+     * @return A new GameMap with the file contents
+     * @throws IllegalArgumentException if the file is not found
+     */
+    public static GameMap readText(String filename) {
+        Scanner fileScanner;
+        try {
+            fileScanner = new Scanner(new FileReader(filename));
+        } catch (FileNotFoundException e) {
+            throw new IllegalArgumentException(filename);
+        }
+
+        int rows = fileScanner.nextInt();
+        int cols = fileScanner.nextInt();
+        fileScanner.nextLine();
+
+        char[][] gridData = new char[rows][];
+        for (int i = 0; i < rows; i++) {
+            gridData[i] = fileScanner.nextLine().toCharArray();
+        }
+        fileScanner.close();
+
+        return new GameMap(rows, cols, gridData);
+    }
+
+    /**
+     * Writes a map in the text format.
+     *
+     * @param map The map to write
+     * @param filename The path of the file to create or overwrite
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeText(GameMap map, String filename) throws IOException {
+        int rows = map.getRows();
+        int cols = map.getCols();
+        char[] line = new char[cols];
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(filename))) {
+            out.write(rows + " " + cols);
+            out.newLine();
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    line[j] = map.getCell(i, j);
+                }
+                out.write(line);
+                out.newLine();
+            }
+        }
+    }
+}
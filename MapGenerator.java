@@ -0,0 +1,220 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * Generates random maps with a given size, mine density, shield distribution and number
+ * of crystals. The board is split into stripes of rows with a fixed height, each filled
+ * by its own random generator split from the seed in stripe order, so the stripes can be
+ * generated in parallel and the result depends only on the seed, never on the number
+ * of threads.
+ *
+ * Usage: java MapGenerator rows cols mineDensity shieldDensity maxShield crystals seed output [text]
+ */
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+import static java.lang.Integer.parseInt;
+
+public class MapGenerator {
+    private static final int STRIPE_ROWS = 64;
+    private static final int MAX_SHIELD = Game.MAX_SHIELD_CELL - Game.MIN_SHIELD_CELL + 1;
+    private static final int ARG_COUNT = 8;
+    private static final String FORMAT_TEXT = "text";
+
+    private static final String MSG_USAGE =
+            "Usage: java MapGenerator rows cols mineDensity shieldDensity maxShield crystals seed output [text]%n";
+    private static final String MSG_GENERATED = "Generated %d x %d map in %d ms, written in %d ms%n";
+
+    private final int rows;
+    private final int cols;
+    private final double mineDensity;
+    private final double shieldDensity;
+    private final int maxShield;
+    private final int crystals;
+
+    /**
+     * Creates a generator for maps with the given properties.
+     *
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @param mineDensity Probability of each cell holding a mine
+     * @param shieldDensity Probability of each cell holding a shield
+     * @param maxShield Maximum shield duration (1-9); durations are uniform from 1 to it
+     * @param crystals Number of crystals placed on the map
+     * @throws IllegalArgumentException if rows or cols is below 1, a density is outside [0, 1]
+     *         or NaN, the densities add up to more than 1, maxShield is outside 1-9, or
+     *         crystals is negative or larger than the number of cells
+     */
+    public MapGenerator(int rows, int cols, double mineDensity, double shieldDensity,
+                        int maxShield, int crystals) {
+        if (rows < 1 || cols < 1 || !isProbability(mineDensity) || !isProbability(shieldDensity)
+                || mineDensity + shieldDensity > 1 || maxShield < 1 || maxShield > MAX_SHIELD
+                || crystals < 0 || crystals > (long) rows * cols) {
+            throw new IllegalArgumentException();
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.mineDensity = mineDensity;
+        this.shieldDensity = shieldDensity;
+        this.maxShield = maxShield;
+        this.crystals = crystals;
+    }
+
+    /**
+     * Checks if a density is a valid probability.
+     *
+     * @param density The density to check
+     * @return true if the density is in [0, 1]; false for NaN
+     */
+    private static boolean isProbability(double density) {
+        return density >= 0 && density <= 1;
+    }
+
+    /**
+     * Generates a map. Stripes are filled in parallel on the common fork-join pool.
+     *
+     * @param seed The seed that fully determines the generated map
+     * @return A new GameMap
+     */
+    public GameMap generate(long seed) {
+        char[][] layout = new char[rows][];
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] stripeRandoms = splitStripes(root);
+
+        IntStream.range(0, stripeRandoms.length).parallel()
+                .forEach(stripe -> fillStripe(layout, stripe, stripeRandoms[stripe]));
+        for (long cell : placeCrystals(root)) {
+            layout[(int) (cell / cols)][(int) (cell % cols)] = Game.CRYSTAL_CELL;
+        }
+        return GameMap.adopt(rows, cols, layout);
+    }
+
+    /**
+     * Generates only some rows of the map that generate would produce for the same seed.
+     * Only the stripes holding those rows are filled, so huge maps can be generated one
+     * part at a time.
+     *
+     * @param seed The seed that fully determines the generated map
+     * @param firstRow The first row to generate (0-based)
+     * @param rowCount The number of rows to generate
+     * @return The rows, each an array of cols cells
+     */
+    public char[][] generateRows(long seed, int firstRow, int rowCount) {
+        char[][] layout = new char[rows][];
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] stripeRandoms = splitStripes(root);
+        int lastRow = firstRow + rowCount - 1;
+        for (int stripe = firstRow / STRIPE_ROWS; stripe <= lastRow / STRIPE_ROWS; stripe++) {
+            fillStripe(layout, stripe, stripeRandoms[stripe]);
+        }
+        for (long cell : placeCrystals(root)) {
+            int row = (int) (cell / cols);
+            if (row >= firstRow && row <= lastRow) {
+                layout[row][(int) (cell % cols)] = Game.CRYSTAL_CELL;
+            }
+        }
+        return Arrays.copyOfRange(layout, firstRow, firstRow + rowCount);
+    }
+
+    /**
+     * Gets the crystal position that the generated map reports, the last crystal in row
+     * order, without generating the map.
+     *
+     * @param seed The seed that fully determines the generated map
+     * @return The crystal position (1-based coordinates), or null if there are no crystals
+     */
+    public Position getCrystalPosition(long seed) {
+        SplittableRandom root = new SplittableRandom(seed);
+        splitStripes(root);
+        long last = -1;
+        for (long cell : placeCrystals(root)) {
+            last = Math.max(last, cell);
+        }
+        return last < 0 ? null : new Position((int) (last / cols) + 1, (int) (last % cols) + 1);
+    }
+
+    /**
+     * Splits one generator per stripe from the root generator, in stripe order.
+     *
+     * @param root The generator created from the seed
+     * @return The generator of each stripe
+     */
+    private SplittableRandom[] splitStripes(SplittableRandom root) {
+        SplittableRandom[] stripeRandoms = new SplittableRandom[(rows + STRIPE_ROWS - 1) / STRIPE_ROWS];
+        for (int i = 0; i < stripeRandoms.length; i++) {
+            stripeRandoms[i] = root.split();
+        }
+        return stripeRandoms;
+    }
+
+    /**
+     * Fills the rows of one stripe.
+     *
+     * @param layout The layout being generated
+     * @param stripe The stripe index
+     * @param random The generator owned by this stripe
+     */
+    private void fillStripe(char[][] layout, int stripe, SplittableRandom random) {
+        int end = Math.min(rows, (stripe + 1) * STRIPE_ROWS);
+        double shieldLimit = mineDensity + shieldDensity;
+        for (int i = stripe * STRIPE_ROWS; i < end; i++) {
+            char[] row = new char[cols];
+            for (int j = 0; j < cols; j++) {
+                double roll = random.nextDouble();
+                if (roll < mineDensity) {
+                    row[j] = Game.MINE_CELL;
+                } else if (roll < shieldLimit) {
+                    row[j] = (char) (Game.MIN_SHIELD_CELL + random.nextInt(maxShield));
+                } else {
+                    row[j] = Game.EMPTY_CELL;
+                }
+            }
+            layout[i] = row;
+        }
+    }
+
+    /**
+     * Picks the crystal cells: distinct random cells, which replace what was generated there.
+     *
+     * @param random The generator used for crystal positions
+     * @return The indexes (row * cols + col, 0-based) of the crystal cells
+     */
+    private long[] placeCrystals(SplittableRandom random) {
+        CellSet placed = new CellSet();
+        while (placed.size() < crystals) {
+            placed.add((long) random.nextInt(rows) * cols + random.nextInt(cols));
+        }
+        return placed.toArray();
+    }
+
+    /**
+     * Generates a map and writes it to a file, in the binary format unless "text" is given.
+     *
+     * @param args rows, cols, mine density, shield density, max shield, crystals, seed,
+     *             output file and optionally the output format
+     * @throws IOException if the output file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < ARG_COUNT) {
+            System.out.printf(MSG_USAGE);
+            return;
+        }
+        MapGenerator generator = new MapGenerator(parseInt(args[0]), parseInt(args[1]),
+                Double.parseDouble(args[2]), Double.parseDouble(args[3]),
+                parseInt(args[4]), parseInt(args[5]));
+        long seed = Long.parseLong(args[6]);
+        String output = args[7];
+
+        long start = System.nanoTime();
+        GameMap map = generator.generate(seed);
+        long generated = System.nanoTime();
+        if (args.length > ARG_COUNT && args[ARG_COUNT].equals(FORMAT_TEXT)) {
+            MapFile.writeText(map, output);
+        } else {
+            BinaryMapFile.write(map, output);
+        }
+        long written = System.nanoTime();
+
+        System.out.printf(MSG_GENERATED, map.getRows(), map.getCols(),
+                (generated - start) / 1_000_000, (written - generated) / 1_000_000);
+    }
+}
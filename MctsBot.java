@@ -0,0 +1,345 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * An AI player choosing its actions with Monte Carlo Tree Search. Worker threads share one
+ * search tree: each one copies the game into its own scratch game, walks down the tree by
+ * UCT, expands one new node, plays random actions up to a fixed depth and propagates the
+ * result back. A virtual loss is put on every node while a worker is below it, which
+ * steers the other workers towards different branches. Results are the ranking of every
+ * player at the end of the rollout, and each node is scored for the player who chose the
+ * action leading to it.
+ *
+ * The bot drives the game only through its public API. Each worker makes one copy of the
+ * game with Game(Game) per decision and refills it with Game.copyFrom before every rollout,
+ * and plays the simulated actions through Game.runBatch, so rollouts reuse the worker's
+ * storage instead of allocating a game and a position per ply. The real game is only
+ * changed by playTurn.
+ */
+import java.util.SplittableRandom;
+
+public class MctsBot {
+    public static final int ACTION_UP = 0;
+    public static final int ACTION_DOWN = 1;
+    public static final int ACTION_LEFT = 2;
+    public static final int ACTION_RIGHT = 3;
+    public static final int ACTION_DETECT = 4;
+    public static final int ACTION_SKIP = 5;
+    public static final int NO_ACTION = -1;
+    private static final int ACTIONS = 6;
+    private static final String[] DIRECTIONS = {"up", "down", "left", "right"};
+    private static final int[] OPS = {Game.OP_UP, Game.OP_DOWN, Game.OP_LEFT, Game.OP_RIGHT, Game.OP_DETECT,
+            Game.OP_SKIP};
+
+    private static final int ROLLOUT_DEPTH = 64;
+    private static final double EXPLORATION = Math.sqrt(2);
+
+    private final int threads;
+    private final long budgetMillis;
+    private final SplittableRandom seeds;
+    private long lastRollouts;
+    private double lastRolloutsPerSecond;
+
+    /**
+     * Creates a bot.
+     *
+     * @param threads The number of worker threads used for each decision
+     * @param budgetMillis The time budget of each decision in milliseconds
+     * @param seed The seed for the random generators of the workers
+     */
+    public MctsBot(int threads, long budgetMillis, long seed) {
+        this.threads = threads;
+        this.budgetMillis = budgetMillis;
+        this.seeds = new SplittableRandom(seed);
+    }
+
+    /**
+     * Chooses an action for the current player and performs it on the game. Nothing is
+     * done if the game is over.
+     *
+     * @param game The game to play in
+     * @return The action that was performed, or NO_ACTION if the game is over
+     */
+    public int playTurn(Game game) {
+        int action = chooseAction(game);
+        if (action != NO_ACTION) {
+            apply(game, action);
+        }
+        return action;
+    }
+
+    /**
+     * Searches for the best action of the current player within the time budget.
+     *
+     * @param game The game to search from; it is not modified
+     * @return The action with the most visits, or NO_ACTION if the game is over
+     */
+    public int chooseAction(Game game) {
+        if (game.isGameOver()) {
+            lastRollouts = 0;
+            lastRolloutsPerSecond = 0;
+            return NO_ACTION;
+        }
+        Node root = new Node(game.getCurrentPlayerIndex(), game.isGameOver());
+        long start = System.nanoTime();
+        long deadline = start + budgetMillis * 1_000_000;
+        long[] rollouts = new long[threads];
+
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            int worker = i;
+            SplittableRandom random = seeds.split();
+            workers[i] = new Thread(() -> {
+                Scratch scratch = new Scratch(game, random);
+                do {
+                    search(root, game, scratch);
+                    rollouts[worker]++;
+                } while (System.nanoTime() < deadline);
+            });
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        lastRollouts = 0;
+        for (long count : rollouts) {
+            lastRollouts += count;
+        }
+        lastRolloutsPerSecond = lastRollouts / ((System.nanoTime() - start) / 1e9);
+        return root.mostVisited();
+    }
+
+    /**
+     * Gets the number of rollouts of the last decision.
+     *
+     * @return The rollout count
+     */
+    public long getLastRollouts() {
+        return lastRollouts;
+    }
+
+    /**
+     * Gets the rollout throughput of the last decision, over all workers.
+     *
+     * @return The number of rollouts per second
+     */
+    public double getLastRolloutsPerSecond() {
+        return lastRolloutsPerSecond;
+    }
+
+    /**
+     * Performs an action for the current player of a game.
+     *
+     * @param game The game to play in
+     * @param action The action to perform
+     */
+    public static void apply(Game game, int action) {
+        switch (action) {
+            case ACTION_DETECT -> game.detect();
+            case ACTION_SKIP -> game.skip();
+            default -> game.movePlayer(DIRECTIONS[action]);
+        }
+    }
+
+    /**
+     * Runs one search iteration: selection, expansion, rollout and backpropagation.
+     *
+     * @param root The root of the search tree
+     * @param game The game at the root
+     * @param scratch The storage of this worker
+     */
+    private void search(Node root, Game game, Scratch scratch) {
+        Game state = scratch.state;
+        state.copyFrom(game);
+        SplittableRandom random = scratch.random;
+        Node[] path = scratch.path;
+        int depth = 0;
+        Node node = root;
+        path[depth++] = node;
+
+        while (!node.terminal && depth < path.length) {
+            int action = node.select(random);
+            scratch.simulate(action);
+            Node child = node.childFor(action, state);
+            path[depth++] = child;
+            node = child;
+            if (child.visits == 0) {
+                break;
+            }
+        }
+
+        for (int ply = 0; ply < ROLLOUT_DEPTH && !state.isGameOver(); ply++) {
+            scratch.simulate(random.nextInt(ACTIONS));
+        }
+
+        double[] scores = rankScores(state, scratch.scores);
+        for (int i = depth - 1; i >= 0; i--) {
+            Node parent = i > 0 ? path[i - 1] : null;
+            path[i].update(parent != null ? scores[parent.actor] : 0, parent != null);
+        }
+    }
+
+    /**
+     * Scores every player by their ranking: 1 for the first, 0 for the last.
+     *
+     * @param state The game to score
+     * @param scores The array receiving the scores, with room for every player
+     * @return The score of each player, by player index
+     */
+    private static double[] rankScores(Game state, double[] scores) {
+        int count = state.getPlayerCount();
+        MyIterator ranked = state.getRankedPlayers();
+        int rank = 0;
+        while (ranked.hasNext()) {
+            Player player = ranked.next();
+            for (int i = 0; i < count; i++) {
+                if (state.getPlayer(i) == player) {
+                    scores[i] = count > 1 ? 1.0 - (double) rank / (count - 1) : 1.0;
+                }
+            }
+            rank++;
+        }
+        return scores;
+    }
+
+    /**
+     * The storage a worker reuses for every rollout of a decision.
+     */
+    private static class Scratch {
+        private final Game state;
+        private final SplittableRandom random;
+        private final Node[] path;
+        private final double[] scores;
+        private final int[] ops;
+        private final int[] results;
+
+        private Scratch(Game game, SplittableRandom random) {
+            this.state = new Game(game);
+            this.random = random;
+            this.path = new Node[ROLLOUT_DEPTH + 1];
+            this.scores = new double[game.getPlayerCount()];
+            this.ops = new int[1];
+            this.results = new int[Game.RESULT_STRIDE];
+        }
+
+        /**
+         * Performs an action for the current player of the scratch game.
+         *
+         * @param action The action to perform
+         */
+        private void simulate(int action) {
+            ops[0] = OPS[action];
+            state.runBatch(ops, 1, results);
+        }
+    }
+
+    /**
+     * A node of the search tree. Statistics are guarded by the node's own lock, so workers
+     * only contend on the nodes they visit at the same time.
+     */
+    private static class Node {
+        private final int actor;
+        private final boolean terminal;
+        private final Node[] children;
+        private int visits;
+        private int virtualLoss;
+        private double totalScore;
+
+        private Node(int actor, boolean terminal) {
+            this.actor = actor;
+            this.terminal = terminal;
+            this.children = new Node[ACTIONS];
+        }
+
+        /**
+         * Picks the action to follow by UCT, trying unvisited actions first. Children with
+         * workers below them count their virtual losses as visits scoring 0.
+         *
+         * @param random The generator used to pick among unvisited actions
+         * @return The chosen action
+         */
+        private synchronized int select(SplittableRandom random) {
+            int offset = random.nextInt(ACTIONS);
+            int best = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            double logVisits = Math.log(visits + virtualLoss + 1);
+            for (int k = 0; k < ACTIONS; k++) {
+                int action = (k + offset) % ACTIONS;
+                Node child = children[action];
+                double value;
+                if (child == null) {
+                    value = Double.POSITIVE_INFINITY;
+                } else {
+                    synchronized (child) {
+                        int n = child.visits + child.virtualLoss;
+                        value = n == 0 ? Double.POSITIVE_INFINITY
+                                : child.totalScore / n + EXPLORATION * Math.sqrt(logVisits / n);
+                    }
+                }
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = action;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Gets the child reached by an action, creating it from the resulting state if needed,
+         * and puts a virtual loss on it.
+         *
+         * @param action The action taken
+         * @param state The game after the action
+         * @return The child node
+         */
+        private Node childFor(int action, Game state) {
+            Node child;
+            synchronized (this) {
+                child = children[action];
+                if (child == null) {
+                    child = new Node(state.getCurrentPlayerIndex(), state.isGameOver());
+                    children[action] = child;
+                }
+            }
+            synchronized (child) {
+                child.virtualLoss++;
+            }
+            return child;
+        }
+
+        /**
+         * Records the result of a rollout through this node and removes its virtual loss.
+         *
+         * @param score The score of the player who chose the action leading here
+         * @param hasVirtualLoss true if a virtual loss was put on this node for the rollout
+         */
+        private synchronized void update(double score, boolean hasVirtualLoss) {
+            visits++;
+            totalScore += score;
+            if (hasVirtualLoss) {
+                virtualLoss--;
+            }
+        }
+
+        /**
+         * Gets the action whose child was visited the most.
+         *
+         * @return The most visited action, or NO_ACTION if nothing was explored
+         */
+        private synchronized int mostVisited() {
+            int best = NO_ACTION;
+            int bestVisits = -1;
+            for (int action = 0; action < ACTIONS; action++) {
+                Node child = children[action];
+                if (child != null && child.visits > bestVisits) {
+                    bestVisits = child.visits;
+                    best = action;
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * Stores the mine layer of a grid as one bit per cell, packed into 64-bit words per row.
+ * Neighbor counts are computed on whole words at once: shifted copies of the adjacent rows
+ * are summed with bitwise adders into four bit planes, so every step handles 64 cells.
+ * Uses 0-based indexing.
+ */
+
+public class MineBitboard {
+    private static final int WORD_BITS = 64;
+    private static final int WORD_SHIFT = 6;
+    private static final int WORD_MASK = WORD_BITS - 1;
+
+    private final long[][] bits;
+    private final int rows;
+    private final int cols;
+    private final int words;
+
+    public MineBitboard(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.words = (cols + WORD_MASK) >>> WORD_SHIFT;
+        this.bits = new long[rows][words];
+    }
+
+    /**
+     * Marks a cell as containing a mine.
+     *
+     * @param row The row index (0-based)
+     * @param col The column index (0-based)
+     */
+    public void set(int row, int col) {
+        bits[row][col >>> WORD_SHIFT] |= 1L << col;
+    }
+
+    /**
+     * Builds the full-board mine-count map: for every cell, the number of mines in the
+     * eight cells surrounding it. The eight neighbor masks of each row are added with a
+     * bitwise ripple adder into four bit planes, 64 cells per word operation, and the
+     * per-cell counts are only unpacked at the end.
+     *
+     * @return A rows x cols array with the mine count around each cell
+     */
+    public byte[][] countMap() {
+        byte[][] counts = new byte[rows][cols];
+        long[] empty = new long[words];
+        long[] plane0 = new long[words];
+        long[] plane1 = new long[words];
+        long[] plane2 = new long[words];
+        long[] plane3 = new long[words];
+        long[] inputs = new long[8];
+
+        for (int i = 0; i < rows; i++) {
+            long[] above = i > 0 ? bits[i - 1] : empty;
+            long[] line = bits[i];
+            long[] below = i < rows - 1 ? bits[i + 1] : empty;
+
+            for (int w = 0; w < words; w++) {
+                long p0 = 0;
+                long p1 = 0;
+                long p2 = 0;
+                long p3 = 0;
+                inputs[0] = westOf(above, w);
+                inputs[1] = above[w];
+                inputs[2] = eastOf(above, w);
+                inputs[3] = westOf(line, w);
+                inputs[4] = eastOf(line, w);
+                inputs[5] = westOf(below, w);
+                inputs[6] = below[w];
+                inputs[7] = eastOf(below, w);
+                for (long input : inputs) {
+                    long carry0 = p0 & input;
+                    p0 ^= input;
+                    long carry1 = p1 & carry0;
+                    p1 ^= carry0;
+                    long carry2 = p2 & carry1;
+                    p2 ^= carry1;
+                    p3 |= carry2;
+                }
+                plane0[w] = p0;
+                plane1[w] = p1;
+                plane2[w] = p2;
+                plane3[w] = p3;
+            }
+            unpack(counts[i], plane0, plane1, plane2, plane3);
+        }
+        return counts;
+    }
+
+    /**
+     * Gets, for word w, the mask of cells whose western neighbor holds a mine.
+     *
+     * @param line The words of the row
+     * @param w The word index
+     * @return The mask shifted one column towards the east
+     */
+    private long westOf(long[] line, int w) {
+        long carry = w > 0 ? line[w - 1] >>> WORD_MASK : 0;
+        return (line[w] << 1) | carry;
+    }
+
+    /**
+     * Gets, for word w, the mask of cells whose eastern neighbor holds a mine.
+     *
+     * @param line The words of the row
+     * @param w The word index
+     * @return The mask shifted one column towards the west
+     */
+    private long eastOf(long[] line, int w) {
+        long carry = w < words - 1 ? line[w + 1] << WORD_MASK : 0;
+        return (line[w] >>> 1) | carry;
+    }
+
+    /**
+     * Converts the four count bit planes of a row into one count per cell.
+     *
+     * @param target The row of the count map to fill
+     * @param plane0 The bit plane with weight 1
+     * @param plane1 The bit plane with weight 2
+     * @param plane2 The bit plane with weight 4
+     * @param plane3 The bit plane with weight 8
+     */
+    private void unpack(byte[] target, long[] plane0, long[] plane1, long[] plane2, long[] plane3) {
+        for (int w = 0; w < words; w++) {
+            long p0 = plane0[w];
+            long p1 = plane1[w];
+            long p2 = plane2[w];
+            long p3 = plane3[w];
+            int base = w << WORD_SHIFT;
+            int end = Math.min(cols, base + WORD_BITS);
+            for (int j = base; j < end; j++) {
+                target[j] = (byte) ((p0 & 1L) | ((p1 & 1L) << 1) | ((p2 & 1L) << 2) | ((p3 & 1L) << 3));
+                p0 >>>= 1;
+                p1 >>>= 1;
+                p2 >>>= 1;
+                p3 >>>= 1;
+            }
+        }
+    }
+}
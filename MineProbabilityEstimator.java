@@ -0,0 +1,713 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * Estimates, for every cell, the probability that it holds a mine, using only what a
+ * player has observed: the cells they safely stood on and the mine counts returned by
+ * detect. Cells next to an observation are split into independent groups of constraints
+ * that share cells, and every layout of a group is weighted by the prior density. Small
+ * groups are solved exactly by enumerating their layouts when sampling starts. Larger
+ * groups are sampled by Markov chain Monte Carlo: each worker finds one layout meeting
+ * every constraint by depth-first search, then repeatedly redraws a block of cells, made
+ * of one constraint and the constraints next to it, from every assignment of the block
+ * that keeps all constraints met. Layouts therefore always meet the observations, however
+ * many detects a group merges. Cells no observation touches keep the prior density.
+ *
+ * Sampling runs on worker threads with their own random generators. Each worker adds its
+ * results to its own stripe of counters, which are summed on every read, so estimates can
+ * be read at any time while sampling goes on and the caller can stop at any moment.
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class MineProbabilityEstimator {
+    /**
+     * Groups of up to EXACT_MAX_CELLS cells are enumerated instead of sampled; blocks
+     * redrawn by the samplers grow up to MAX_BLOCK_CELLS cells.
+     */
+    private static final int EXACT_MAX_CELLS = 20;
+    private static final int MAX_BLOCK_CELLS = 16;
+    private static final int BURN_IN_SWEEPS = 64;
+    private static final long MAX_SEARCH_STEPS = 1L << 22;
+
+    /**
+     * Modes of Walker.walk: stop at the first layout, add up every layout, or draw one.
+     */
+    private static final int WALK_FIRST = 0;
+    private static final int WALK_ENUMERATE = 1;
+    private static final int WALK_SAMPLE = 2;
+
+    private final int rows;
+    private final int cols;
+    private final double priorDensity;
+    private final CellSet safeCells;
+    private final List<int[]> observations;
+
+    private Map<Long, Integer> slotOfCell;
+    private int[] componentOfSlot;
+    private Component[] components;
+    private double[] exactProbability;
+    private long[] exactLayouts;
+    private AtomicLongArray[] stripeHits;
+    private AtomicLongArray[] stripeSamples;
+    private Thread[] workers;
+    private volatile boolean running;
+
+    /**
+     * Creates an estimator for a grid of the given size.
+     *
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @param priorDensity The expected fraction of cells holding a mine
+     */
+    public MineProbabilityEstimator(int rows, int cols, double priorDensity) {
+        this.rows = rows;
+        this.cols = cols;
+        this.priorDensity = priorDensity;
+        this.safeCells = new CellSet();
+        this.observations = new ArrayList<>();
+    }
+
+    /**
+     * Records a cell known to hold no mine, such as a cell the player stood on.
+     *
+     * @param pos The position of the cell (1-based coordinates)
+     */
+    public void addSafeCell(Position pos) {
+        safeCells.add(cellIndex(pos.getRow() - 1, pos.getColumn() - 1));
+    }
+
+    /**
+     * Records the result of a detect made from a position. The position itself is safe.
+     *
+     * @param pos The position the detect was made from (1-based coordinates)
+     * @param mines The number of mines reported around the position
+     */
+    public void addObservation(Position pos, int mines) {
+        addSafeCell(pos);
+        observations.add(new int[] {pos.getRow() - 1, pos.getColumn() - 1, mines});
+    }
+
+    /**
+     * Solves the small groups of constraints exactly and starts sampling the others on
+     * worker threads. Observations added afterwards are only used after the estimator is
+     * stopped and started again, which also resets the estimates.
+     *
+     * @param threads The number of worker threads
+     * @param seed The seed for the random generators of the workers
+     */
+    public void start(int threads, long seed) {
+        stop();
+        buildComponents();
+        stripeHits = new AtomicLongArray[threads];
+        stripeSamples = new AtomicLongArray[threads];
+        workers = new Thread[threads];
+        SplittableRandom root = new SplittableRandom(seed);
+        running = true;
+        for (int i = 0; i < threads; i++) {
+            AtomicLongArray hits = new AtomicLongArray(componentOfSlot.length);
+            AtomicLongArray samples = new AtomicLongArray(components.length);
+            SplittableRandom random = root.split();
+            stripeHits[i] = hits;
+            stripeSamples[i] = samples;
+            workers[i] = new Thread(() -> sample(random, hits, samples));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Stops sampling and waits for the workers to finish. Estimates stay readable. The
+     * workers end within one sampling step, so an interrupt does not cut the wait short:
+     * it is kept and the interrupt flag is set again on return, and the estimator can
+     * always be started again afterwards.
+     */
+    public void stop() {
+        running = false;
+        if (workers == null) {
+            return;
+        }
+        boolean interrupted = false;
+        for (Thread worker : workers) {
+            while (worker.isAlive()) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        workers = null;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Samples for at most the given time and stops, returning with the best estimate
+     * reached within the budget.
+     *
+     * @param millis The time budget in milliseconds
+     * @param threads The number of worker threads
+     * @param seed The seed for the random generators of the workers
+     */
+    public void estimateFor(long millis, int threads, long seed) {
+        start(threads, seed);
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        stop();
+    }
+
+    /**
+     * Gets the current estimate of the probability that a cell holds a mine.
+     *
+     * @param pos The position of the cell (1-based coordinates)
+     * @return 0 for safe cells, the prior density for cells no observation touches, and
+     *         otherwise the exact probability or the sampled frequency of the cell's group;
+     *         NaN if there is no estimate yet, because nothing has been sampled, or because
+     *         no layout meets the observations of the group. Before the first start, every
+     *         cell but the safe ones gets the prior density.
+     */
+    public double getProbability(Position pos) {
+        long cell = cellIndex(pos.getRow() - 1, pos.getColumn() - 1);
+        if (safeCells.contains(cell)) {
+            return 0;
+        }
+        Integer slot = slotOfCell == null ? null : slotOfCell.get(cell);
+        if (slot == null) {
+            return priorDensity;
+        }
+        int component = componentOfSlot[slot];
+        if (components[component].exact) {
+            return exactProbability[slot];
+        }
+        long samples = sum(stripeSamples, component);
+        if (samples == 0) {
+            return Double.NaN;
+        }
+        return (double) sum(stripeHits, slot) / samples;
+    }
+
+    /**
+     * Gets the number of layouts behind the estimate of a cell: every layout of its group
+     * that meets the observations when the group is solved exactly, or the layouts sampled
+     * so far otherwise.
+     *
+     * @param pos The position of the cell (1-based coordinates)
+     * @return The layout count of the cell's group; 0 if there is no estimate yet, and
+     *         for safe cells and cells no observation touches, which need no sampling
+     */
+    public long getSampleCount(Position pos) {
+        long cell = cellIndex(pos.getRow() - 1, pos.getColumn() - 1);
+        Integer slot = slotOfCell == null || safeCells.contains(cell) ? null : slotOfCell.get(cell);
+        if (slot == null) {
+            return 0;
+        }
+        int component = componentOfSlot[slot];
+        return components[component].exact ? exactLayouts[component] : sum(stripeSamples, component);
+    }
+
+    /**
+     * Gets the total number of layouts sampled over all groups of constraints that are
+     * not solved exactly.
+     *
+     * @return The number of samples taken so far
+     */
+    public long getSampleCount() {
+        long total = 0;
+        if (stripeSamples != null) {
+            for (int i = 0; i < components.length; i++) {
+                total += sum(stripeSamples, i);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Sums one counter over all stripes.
+     *
+     * @param stripes The counter stripes of the workers
+     * @param index The counter index
+     * @return The total value of the counter
+     */
+    private long sum(AtomicLongArray[] stripes, int index) {
+        long total = 0;
+        for (AtomicLongArray stripe : stripes) {
+            total += stripe.get(index);
+        }
+        return total;
+    }
+
+    /**
+     * Worker loop: keeps one Markov chain per sampled group of constraints and takes turns
+     * advancing each of them by one sweep, recording the layout after the burn-in, until
+     * stopped. Groups with no layout meeting their constraints are dropped.
+     *
+     * @param random The generator owned by this worker
+     * @param hits The mine counters per constrained cell of this worker
+     * @param samples The sampled layout counters per group of this worker
+     */
+    private void sample(SplittableRandom random, AtomicLongArray hits, AtomicLongArray samples) {
+        int maxCells = 0;
+        Chain[] chains = new Chain[components.length];
+        for (int c = 0; c < components.length; c++) {
+            if (!components[c].exact) {
+                chains[c] = new Chain(components[c]);
+                maxCells = Math.max(maxCells, components[c].slots.length);
+            }
+        }
+        Walker walker = new Walker(maxCells);
+
+        boolean active = true;
+        while (running && active) {
+            active = false;
+            for (int c = 0; c < components.length && running; c++) {
+                Chain chain = chains[c];
+                if (chain == null) {
+                    continue;
+                }
+                Component component = components[c];
+                active = true;
+                if (!chain.ready) {
+                    long layouts = walker.walk(component, chain, component.order, component.order.length,
+                            WALK_FIRST, priorDensity, random);
+                    chain.ready = layouts > 0;
+                    if (layouts == 0) {
+                        chains[c] = null;
+                    }
+                    continue;
+                }
+                component.sweep(chain, walker, priorDensity, random);
+                if (chain.burnIn < BURN_IN_SWEEPS) {
+                    chain.burnIn++;
+                    continue;
+                }
+                for (int i = 0; i < component.slots.length; i++) {
+                    if (chain.mines[i]) {
+                        int slot = component.slots[i];
+                        hits.lazySet(slot, hits.get(slot) + 1);
+                    }
+                }
+                samples.lazySet(c, samples.get(c) + 1);
+            }
+        }
+    }
+
+    /**
+     * Solves a small group of constraints by enumerating every layout meeting them.
+     *
+     * @param c The index of the group
+     */
+    private void solveExactly(int c) {
+        Component component = components[c];
+        int cells = component.slots.length;
+        Walker walker = new Walker(cells);
+        long layouts = walker.walk(component, new Chain(component), component.order, cells, WALK_ENUMERATE,
+                priorDensity, null);
+        exactLayouts[c] = walker.total > 0 ? layouts : 0;
+        for (int i = 0; i < cells; i++) {
+            exactProbability[component.slots[i]] = walker.total > 0 ? walker.sums[i] / walker.total : Double.NaN;
+        }
+    }
+
+    /**
+     * Splits the cells next to the observations into groups of constraints sharing cells,
+     * using union-find over the constrained cells.
+     */
+    private void buildComponents() {
+        slotOfCell = new HashMap<>();
+        List<int[]> observationSlots = new ArrayList<>();
+        for (int[] observation : observations) {
+            List<Integer> slots = new ArrayList<>();
+            for (int i = observation[0] - 1; i <= observation[0] + 1; i++) {
+                for (int j = observation[1] - 1; j <= observation[1] + 1; j++) {
+                    if (i < 0 || i >= rows || j < 0 || j >= cols) {
+                        continue;
+                    }
+                    long cell = cellIndex(i, j);
+                    if (!safeCells.contains(cell)) {
+                        slots.add(slotOfCell.computeIfAbsent(cell, k -> slotOfCell.size()));
+                    }
+                }
+            }
+            observationSlots.add(slots.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        int[] parent = new int[slotOfCell.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int[] slots : observationSlots) {
+            for (int k = 1; k < slots.length; k++) {
+                parent[find(parent, slots[k])] = find(parent, slots[0]);
+            }
+        }
+
+        Map<Integer, Integer> componentOfRoot = new HashMap<>();
+        List<List<Integer>> constraintsOfComponent = new ArrayList<>();
+        for (int o = 0; o < observationSlots.size(); o++) {
+            int[] slots = observationSlots.get(o);
+            if (slots.length == 0) {
+                continue;
+            }
+            int component = componentOfRoot.computeIfAbsent(find(parent, slots[0]), k -> {
+                constraintsOfComponent.add(new ArrayList<>());
+                return constraintsOfComponent.size() - 1;
+            });
+            constraintsOfComponent.get(component).add(o);
+        }
+
+        componentOfSlot = new int[parent.length];
+        components = new Component[constraintsOfComponent.size()];
+        for (int c = 0; c < components.length; c++) {
+            List<Integer> constraints = constraintsOfComponent.get(c);
+            int[][] constraintSlots = new int[constraints.size()][];
+            int[] required = new int[constraints.size()];
+            for (int k = 0; k < constraints.size(); k++) {
+                constraintSlots[k] = observationSlots.get(constraints.get(k));
+                required[k] = observations.get(constraints.get(k))[2];
+                for (int slot : constraintSlots[k]) {
+                    componentOfSlot[slot] = c;
+                }
+            }
+            components[c] = new Component(constraintSlots, required);
+        }
+
+        exactProbability = new double[parent.length];
+        exactLayouts = new long[components.length];
+        for (int c = 0; c < components.length; c++) {
+            if (components[c].exact) {
+                solveExactly(c);
+            }
+        }
+    }
+
+    /**
+     * Finds the representative of a slot in the union-find forest, halving paths on the way.
+     *
+     * @param parent The parent of each slot
+     * @param slot The slot to look up
+     * @return The representative slot
+     */
+    private static int find(int[] parent, int slot) {
+        while (parent[slot] != slot) {
+            parent[slot] = parent[parent[slot]];
+            slot = parent[slot];
+        }
+        return slot;
+    }
+
+    /**
+     * Converts 0-based coordinates into a single cell index.
+     *
+     * @param row The row index (0-based)
+     * @param col The column index (0-based)
+     * @return The cell index, row * cols + col
+     */
+    private long cellIndex(int row, int col) {
+        return (long) row * cols + col;
+    }
+
+    /**
+     * An independent group of detect constraints and the cells they cover. Cells are
+     * ordered constraint by constraint, so searches complete constraints, and can prune
+     * an assignment, as early as possible.
+     */
+    private static class Component {
+        private final int[] slots;
+        private final int[] required;
+        private final int[][] constraintsOfCell;
+        private final int[] sizes;
+        private final int[] order;
+        private final int[][] blocks;
+        private final boolean exact;
+
+        private Component(int[][] constraintSlots, int[] required) {
+            this.required = required;
+            this.sizes = new int[required.length];
+            Map<Integer, Integer> local = new HashMap<>();
+            List<List<Integer>> constraintsOf = new ArrayList<>();
+            int[][] cellsOfConstraint = new int[constraintSlots.length][];
+            for (int k = 0; k < constraintSlots.length; k++) {
+                sizes[k] = constraintSlots[k].length;
+                cellsOfConstraint[k] = new int[sizes[k]];
+                for (int n = 0; n < sizes[k]; n++) {
+                    int index = local.computeIfAbsent(constraintSlots[k][n], s -> {
+                        constraintsOf.add(new ArrayList<>());
+                        return local.size();
+                    });
+                    constraintsOf.get(index).add(k);
+                    cellsOfConstraint[k][n] = index;
+                }
+            }
+            this.slots = new int[local.size()];
+            for (Map.Entry<Integer, Integer> entry : local.entrySet()) {
+                slots[entry.getValue()] = entry.getKey();
+            }
+            this.constraintsOfCell = new int[slots.length][];
+            this.order = new int[slots.length];
+            for (int i = 0; i < slots.length; i++) {
+                constraintsOfCell[i] = constraintsOf.get(i).stream().mapToInt(Integer::intValue).toArray();
+                order[i] = i;
+            }
+            this.exact = slots.length <= EXACT_MAX_CELLS;
+            this.blocks = exact ? new int[0][] : buildBlocks(cellsOfConstraint);
+        }
+
+        /**
+         * Builds one block per constraint: its own cells, then the cells of the constraints
+         * sharing a cell with it, as long as the block stays within MAX_BLOCK_CELLS cells.
+         *
+         * @param cellsOfConstraint The cells of each constraint
+         * @return The cells of each block, constraint by constraint
+         */
+        private int[][] buildBlocks(int[][] cellsOfConstraint) {
+            int[][] result = new int[required.length][];
+            boolean[] inBlock = new boolean[slots.length];
+            int[] cells = new int[slots.length];
+            for (int k = 0; k < required.length; k++) {
+                int count = addCells(cellsOfConstraint[k], inBlock, cells, 0);
+                for (int cell : cellsOfConstraint[k]) {
+                    for (int j : constraintsOfCell[cell]) {
+                        if (count + newCells(cellsOfConstraint[j], inBlock) <= MAX_BLOCK_CELLS) {
+                            count = addCells(cellsOfConstraint[j], inBlock, cells, count);
+                        }
+                    }
+                }
+                result[k] = Arrays.copyOf(cells, count);
+                for (int i = 0; i < count; i++) {
+                    inBlock[cells[i]] = false;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Counts the cells of a constraint not yet in the block being built.
+         *
+         * @param constraintCells The cells of the constraint
+         * @param inBlock Whether each cell is already in the block
+         * @return The number of cells the constraint would add
+         */
+        private static int newCells(int[] constraintCells, boolean[] inBlock) {
+            int count = 0;
+            for (int cell : constraintCells) {
+                if (!inBlock[cell]) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Adds the cells of a constraint to the block being built, skipping those already in.
+         *
+         * @param constraintCells The cells of the constraint
+         * @param inBlock Whether each cell is already in the block
+         * @param cells The cells of the block
+         * @param count The number of cells in the block
+         * @return The new number of cells in the block
+         */
+        private static int addCells(int[] constraintCells, boolean[] inBlock, int[] cells, int count) {
+            for (int cell : constraintCells) {
+                if (!inBlock[cell]) {
+                    inBlock[cell] = true;
+                    cells[count++] = cell;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Advances a chain by one sweep: as many block redraws as there are blocks, each on
+         * a block picked at random.
+         *
+         * @param chain The chain to advance, holding a layout meeting every constraint
+         * @param walker The search scratch space of the worker
+         * @param density The prior probability of a mine
+         * @param random The generator to use
+         */
+        private void sweep(Chain chain, Walker walker, double density, SplittableRandom random) {
+            for (int n = 0; n < blocks.length; n++) {
+                int[] block = blocks[random.nextInt(blocks.length)];
+                for (int cell : block) {
+                    unassign(cell, chain.mines[cell], chain);
+                }
+                walker.walk(this, chain, block, block.length, WALK_SAMPLE, density, random);
+                for (int i = 0; i < block.length; i++) {
+                    chain.mines[block[i]] = walker.chosen[i];
+                    assign(block[i], walker.chosen[i], chain);
+                }
+            }
+        }
+
+        /**
+         * Assigns a cell, updating the counts of its constraints.
+         *
+         * @param cell The cell (local index)
+         * @param mine true if the cell holds a mine
+         * @param chain The chain whose counts are updated
+         * @return true if every constraint of the cell can still be met
+         */
+        private boolean assign(int cell, boolean mine, Chain chain) {
+            boolean feasible = true;
+            for (int k : constraintsOfCell[cell]) {
+                chain.remaining[k]--;
+                if (mine) {
+                    chain.placed[k]++;
+                }
+                if (chain.placed[k] > required[k] || chain.placed[k] + chain.remaining[k] < required[k]) {
+                    feasible = false;
+                }
+            }
+            return feasible;
+        }
+
+        /**
+         * Undoes the assignment of a cell.
+         *
+         * @param cell The cell (local index)
+         * @param mine true if the cell was assigned a mine
+         * @param chain The chain whose counts are updated
+         */
+        private void unassign(int cell, boolean mine, Chain chain) {
+            for (int k : constraintsOfCell[cell]) {
+                chain.remaining[k]++;
+                if (mine) {
+                    chain.placed[k]--;
+                }
+            }
+        }
+    }
+
+    /**
+     * The layout a worker keeps for a group of constraints, with the mines placed in and
+     * the cells left unassigned of every constraint.
+     */
+    private static class Chain {
+        private final boolean[] mines;
+        private final int[] placed;
+        private final int[] remaining;
+        private boolean ready;
+        private int burnIn;
+
+        private Chain(Component component) {
+            this.mines = new boolean[component.slots.length];
+            this.placed = new int[component.required.length];
+            this.remaining = component.sizes.clone();
+        }
+    }
+
+    /**
+     * Scratch space for depth-first searches over the cells of a group, reused by a worker
+     * for every search.
+     */
+    private static class Walker {
+        private final int[] tried;
+        private final boolean[] first;
+        private final double[] weight;
+        private final boolean[] chosen;
+        private final double[] sums;
+        private double total;
+
+        private Walker(int maxCells) {
+            this.tried = new int[maxCells + 1];
+            this.first = new boolean[maxCells + 1];
+            this.weight = new double[maxCells + 1];
+            this.chosen = new boolean[maxCells];
+            this.sums = new double[maxCells];
+        }
+
+        /**
+         * Walks, depth first, the assignments of some cells that meet every constraint of
+         * the group given the rest of the chain's layout, weighting each by the prior.
+         * WALK_FIRST tries mines with the prior density and stops at the first layout,
+         * leaving it in the chain; WALK_ENUMERATE adds up every layout into total and the
+         * per-cell sums; WALK_SAMPLE draws one layout by its weight into chosen. The last
+         * two leave the cells unassigned.
+         *
+         * @param component The group of constraints
+         * @param chain The layout and counts to search from, with the cells unassigned
+         * @param order The cells to assign, in search order
+         * @param count The number of cells to assign
+         * @param mode One of the WALK_ constants
+         * @param density The prior probability of a mine
+         * @param random The generator, unused by WALK_ENUMERATE
+         * @return The number of layouts found, or -1 if WALK_FIRST ran out of search steps
+         */
+        private long walk(Component component, Chain chain, int[] order, int count, int mode, double density,
+                          SplittableRandom random) {
+            boolean[] mines = chain.mines;
+            total = 0;
+            if (mode == WALK_ENUMERATE) {
+                Arrays.fill(sums, 0, count, 0);
+            }
+            long layouts = 0;
+            long steps = 0;
+            int depth = 0;
+            tried[0] = 0;
+            weight[0] = 1;
+            while (depth >= 0) {
+                if (depth == count) {
+                    double w = weight[depth];
+                    layouts++;
+                    total += w;
+                    if (mode == WALK_FIRST) {
+                        return layouts;
+                    }
+                    if (mode == WALK_ENUMERATE) {
+                        for (int i = 0; i < count; i++) {
+                            if (mines[order[i]]) {
+                                sums[i] += w;
+                            }
+                        }
+                    } else if (random.nextDouble() * total < w) {
+                        for (int i = 0; i < count; i++) {
+                            chosen[i] = mines[order[i]];
+                        }
+                    }
+                    depth--;
+                    component.unassign(order[depth], mines[order[depth]], chain);
+                    continue;
+                }
+                if (tried[depth] == 2) {
+                    depth--;
+                    if (depth >= 0) {
+                        component.unassign(order[depth], mines[order[depth]], chain);
+                    }
+                    continue;
+                }
+                if (mode == WALK_FIRST && ++steps > MAX_SEARCH_STEPS) {
+                    for (int i = depth - 1; i >= 0; i--) {
+                        component.unassign(order[i], mines[order[i]], chain);
+                    }
+                    return -1;
+                }
+                boolean mine;
+                if (tried[depth] == 0) {
+                    first[depth] = mode == WALK_FIRST && random.nextDouble() < density;
+                    mine = first[depth];
+                } else {
+                    mine = !first[depth];
+                }
+                tried[depth]++;
+                int cell = order[depth];
+                mines[cell] = mine;
+                double w = weight[depth] * (mine ? density : 1 - density);
+                if (component.assign(cell, mine, chain) && w > 0) {
+                    weight[++depth] = w;
+                    tried[depth] = 0;
+                } else {
+                    component.unassign(cell, mine, chain);
+                }
+            }
+            return layouts;
+        }
+    }
+}
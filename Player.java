@@ -5,13 +5,15 @@
  */
 
 public class Player {
-    private final String name;
+    private String name;
     private Position position;
     private boolean isEliminated;
     private int shieldDuration;
     private boolean hasCollectedCrystal;
     private int totalMoves;
     private int pendingShieldDuration;
+    private VisibilitySet knownCells;
+    private ChangeSet changes;
 
     public Player(String name, int row, int col) {
         this.name = name;
@@ -22,6 +24,83 @@ public class Player {
         this.hasCollectedCrystal = false;
     }
 
+    /**
+     * Creates a copy of another player. Known cells of the fog-of-war mode are not copied.
+     *
+     * @param other The player to copy
+     */
+    public Player(Player other) {
+        this.name = other.name;
+        this.position = other.position;
+        this.isEliminated = other.isEliminated;
+        this.shieldDuration = other.shieldDuration;
+        this.totalMoves = other.totalMoves;
+        this.hasCollectedCrystal = other.hasCollectedCrystal;
+        this.pendingShieldDuration = other.pendingShieldDuration;
+    }
+
+    /**
+     * Turns the player into a copy of another player, as the copy constructor would. The
+     * known cells and the change set are dropped.
+     *
+     * @param other The player to copy
+     */
+    public void copyFrom(Player other) {
+        this.name = other.name;
+        this.position = other.position;
+        this.isEliminated = other.isEliminated;
+        this.shieldDuration = other.shieldDuration;
+        this.totalMoves = other.totalMoves;
+        this.hasCollectedCrystal = other.hasCollectedCrystal;
+        this.pendingShieldDuration = other.pendingShieldDuration;
+        this.knownCells = null;
+        this.changes = null;
+    }
+
+    /**
+     * Creates a player with a given state, used to hand players over between the shards
+     * of a partitioned game.
+     *
+     * @param name The player's name
+     * @param row The row of the player's position
+     * @param col The column of the player's position
+     * @param shieldDuration The remaining turns of the active shield
+     * @param pendingShieldDuration The duration of the shield that activates at the end of the turn
+     * @param totalMoves The number of moves made so far
+     * @param isEliminated true if the player was eliminated
+     * @param hasCollectedCrystal true if the player collected the crystal
+     */
+    public Player(String name, int row, int col, int shieldDuration, int pendingShieldDuration,
+                  int totalMoves, boolean isEliminated, boolean hasCollectedCrystal) {
+        this.name = name;
+        this.position = new Position(row, col);
+        this.shieldDuration = shieldDuration;
+        this.pendingShieldDuration = pendingShieldDuration;
+        this.totalMoves = totalMoves;
+        this.isEliminated = isEliminated;
+        this.hasCollectedCrystal = hasCollectedCrystal;
+    }
+
+    /**
+     * Turns this object into a new player, as if it had just been created with the same
+     * arguments. Used to reuse the player slots of a pooled game.
+     *
+     * @param name The player's name
+     * @param row The row of the player's position
+     * @param col The column of the player's position
+     */
+    public void reset(String name, int row, int col) {
+        this.name = name;
+        this.position = new Position(row, col);
+        this.isEliminated = false;
+        this.shieldDuration = 0;
+        this.pendingShieldDuration = 0;
+        this.totalMoves = 0;
+        this.hasCollectedCrystal = false;
+        this.knownCells = null;
+        this.changes = null;
+    }
+
     /**
      * Gets the player's name.
      *
@@ -63,6 +142,9 @@ public class Player {
      */
     public void moveTo(Position newPosition) {
         this.position = newPosition;
+        if (changes != null) {
+            changes.playerChanged(this, ChangeSet.CHANGE_MOVED);
+        }
     }
 
     /**
@@ -79,6 +161,9 @@ public class Player {
         else {
             pendingShieldDuration = duration;
         }
+        if (changes != null) {
+            changes.playerChanged(this, ChangeSet.CHANGE_SHIELD);
+        }
     }
 
     /**
@@ -118,6 +203,24 @@ public class Player {
         return Math.max(shieldDuration, pendingShieldDuration);
     }
 
+    /**
+     * Gets the remaining duration of the active shield only.
+     *
+     * @return The number of turns the active shield still lasts
+     */
+    public int getActiveShieldDuration() {
+        return shieldDuration;
+    }
+
+    /**
+     * Gets the duration of the shield that activates at the end of the current turn.
+     *
+     * @return The pending shield duration, or 0 if there is none
+     */
+    public int getPendingShieldDuration() {
+        return pendingShieldDuration;
+    }
+
     /**
      * Checks if the player has been eliminated from the game.
      *
@@ -133,6 +236,9 @@ public class Player {
     public void eliminate() {
         this.isEliminated = true;
         this.shieldDuration = 0;
+        if (changes != null) {
+            changes.playerChanged(this, ChangeSet.CHANGE_ELIMINATED);
+        }
     }
 
     /**
@@ -149,5 +255,35 @@ public class Player {
      */
     public void collectCrystal() {
         this.hasCollectedCrystal = true;
+        if (changes != null) {
+            changes.playerChanged(this, ChangeSet.CHANGE_CRYSTAL);
+        }
+    }
+
+    /**
+     * Attaches the change set that records the moves, shield pickups, elimination and
+     * crystal pickup of this player from now on. Copies of the player are not attached.
+     *
+     * @param changes The change set to report to, or null to stop reporting
+     */
+    public void setChangeSet(ChangeSet changes) {
+        this.changes = changes;
+    }
+
+    /**
+     * Starts recording the cells known to this player, used by the fog-of-war mode.
+     * Players that never call this keep no visibility data at all.
+     */
+    public void startTrackingKnownCells() {
+        this.knownCells = new VisibilitySet();
+    }
+
+    /**
+     * Gets the cells this player has visited or detected around.
+     *
+     * @return The set of known cell indexes, or null if they are not being tracked
+     */
+    public VisibilitySet getKnownCells() {
+        return knownCells;
     }
 }
\ No newline at end of file
@@ -0,0 +1,260 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * A worker process of a partitioned game. It owns one band of consecutive rows of the
+ * board, generated locally from the map seed so the whole map is never held in one
+ * process, plus a halo: a copy of the row above and the row below the band, kept up to
+ * date by the coordinator, so detections next to the band edge need no extra messages.
+ * It also owns the players standing in its band and applies the cell effects of their
+ * moves, following the rules of Game.
+ *
+ * The worker connects to the coordinator over a local socket, sends its shard number,
+ * then answers requests one at a time until told to stop. Each request starts with one of
+ * the OP_ codes; players travel between workers as the fields written by writePlayer.
+ *
+ * Usage: java ShardWorker port shard seed rows cols mineDensity shieldDensity maxShield crystals firstRow rowCount
+ */
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import static java.lang.Integer.parseInt;
+
+public class ShardWorker {
+    /**
+     * Requests sent by the coordinator.
+     */
+    static final int OP_ADD = 0;
+    static final int OP_FINISH = 1;
+    static final int OP_MOVE = 2;
+    static final int OP_LEAVE = 3;
+    static final int OP_ENTER = 4;
+    static final int OP_DETECT = 5;
+    static final int OP_CLEAR = 6;
+    static final int OP_STOP = 7;
+
+    /**
+     * Row reported when a move cleared no cell on the edge of the band.
+     */
+    static final int NO_EDGE_CELL = 0;
+
+    private final int cols;
+    private final int firstRow;
+    private final int lastRow;
+    private final int haloFirst;
+    private final char[][] cells;
+    private final Map<Integer, Player> players;
+
+    /**
+     * Creates a worker for a band of rows, generating the band and its halo.
+     *
+     * @param generator The generator of the whole map
+     * @param seed The map seed
+     * @param rows The number of rows of the whole map
+     * @param cols The number of columns of the map
+     * @param firstRow The first row of the band (1-based)
+     * @param rowCount The number of rows of the band
+     */
+    public ShardWorker(MapGenerator generator, long seed, int rows, int cols, int firstRow, int rowCount) {
+        this.cols = cols;
+        this.firstRow = firstRow;
+        this.lastRow = firstRow + rowCount - 1;
+        this.haloFirst = Math.max(1, firstRow - 1);
+        int haloLast = Math.min(rows, lastRow + 1);
+        this.cells = generator.generateRows(seed, haloFirst - 1, haloLast - haloFirst + 1);
+        this.players = new HashMap<>();
+    }
+
+    /**
+     * Starts a worker process and serves the coordinator until it is told to stop.
+     *
+     * @param args The coordinator port, the shard number, the map generator settings and the band
+     * @throws IOException if the connection to the coordinator fails
+     */
+    public static void main(String[] args) throws IOException {
+        int port = parseInt(args[0]);
+        int shard = parseInt(args[1]);
+        long seed = Long.parseLong(args[2]);
+        int rows = parseInt(args[3]);
+        int cols = parseInt(args[4]);
+        MapGenerator generator = new MapGenerator(rows, cols, Double.parseDouble(args[5]),
+                Double.parseDouble(args[6]), parseInt(args[7]), parseInt(args[8]));
+        ShardWorker worker = new ShardWorker(generator, seed, rows, cols, parseInt(args[9]), parseInt(args[10]));
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(shard);
+            out.flush();
+            worker.serve(in, out);
+        }
+    }
+
+    /**
+     * Answers requests until OP_STOP is received.
+     *
+     * @param in The stream of requests
+     * @param out The stream of replies
+     * @throws IOException if the connection fails
+     */
+    public void serve(DataInputStream in, DataOutputStream out) throws IOException {
+        while (true) {
+            int op = in.readInt();
+            switch (op) {
+                case OP_ADD -> {
+                    int slot = in.readInt();
+                    int row = in.readInt();
+                    int col = in.readInt();
+                    String name = in.readUTF();
+                    boolean added = cellAt(row, col) == Game.EMPTY_CELL;
+                    if (added) {
+                        players.put(slot, new Player(name, row, col));
+                    }
+                    out.writeBoolean(added);
+                }
+                case OP_FINISH -> {
+                    Player player = players.get(in.readInt());
+                    player.finishTurn();
+                    writePlayer(out, player);
+                }
+                case OP_MOVE -> {
+                    Player player = players.get(in.readInt());
+                    move(player, in.readInt(), in.readInt(), out);
+                }
+                case OP_LEAVE -> writePlayer(out, players.remove(in.readInt()));
+                case OP_ENTER -> {
+                    int slot = in.readInt();
+                    Player player = readPlayer(in);
+                    players.put(slot, player);
+                    move(player, in.readInt(), in.readInt(), out);
+                }
+                case OP_DETECT -> {
+                    Player player = players.get(in.readInt());
+                    int mines = countSurroundingMines(player.getPosition());
+                    player.finishTurn();
+                    out.writeInt(mines);
+                    writePlayer(out, player);
+                }
+                case OP_CLEAR -> {
+                    int row = in.readInt();
+                    cells[row - haloFirst][in.readInt() - 1] = Game.EMPTY_CELL;
+                }
+                case OP_STOP -> {
+                    return;
+                }
+                default -> throw new IllegalStateException(Integer.toString(op));
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Moves a player onto a cell of the band, with the cell effects of Game, and replies
+     * with the result, the cleared cell if it lies on the edge of the band, and the player.
+     *
+     * @param player The moving player
+     * @param row The destination row (1-based)
+     * @param col The destination column (1-based)
+     * @param out The stream of replies
+     * @throws IOException if the connection fails
+     */
+    private void move(Player player, int row, int col, DataOutputStream out) throws IOException {
+        char cell = cellAt(row, col);
+        int result = Game.MOVE_SUCCESS;
+        boolean cleared = true;
+        if (cell == Game.MINE_CELL) {
+            if (player.isProtected()) {
+                result = Game.MOVE_SUCCESS_PROTECTED;
+            } else {
+                player.eliminate();
+                result = Game.MOVE_MINE_HIT;
+            }
+        } else if (cell >= Game.MIN_SHIELD_CELL && cell <= Game.MAX_SHIELD_CELL) {
+            player.addShield(Character.getNumericValue(cell));
+            result = Game.MOVE_SHIELD_PICKUP;
+        } else {
+            cleared = false;
+            if (cell == Game.CRYSTAL_CELL) {
+                player.collectCrystal();
+                result = Game.MOVE_CRYSTAL_FOUND;
+            }
+        }
+        if (cleared) {
+            cells[row - haloFirst][col - 1] = Game.EMPTY_CELL;
+        }
+        player.moveTo(new Position(row, col));
+        player.finishTurn();
+
+        boolean onEdge = cleared && (row == firstRow || row == lastRow);
+        out.writeInt(result);
+        out.writeInt(onEdge ? row : NO_EDGE_CELL);
+        out.writeInt(col);
+        writePlayer(out, player);
+    }
+
+    /**
+     * Counts the mines in the eight cells around a position, reading the halo for the
+     * cells outside the band.
+     *
+     * @param pos The center position (1-based coordinates)
+     * @return The number of mines in the adjacent cells
+     */
+    private int countSurroundingMines(Position pos) {
+        int count = 0;
+        int haloLast = haloFirst + cells.length - 1;
+        for (int i = Math.max(haloFirst, pos.getRow() - 1); i <= Math.min(haloLast, pos.getRow() + 1); i++) {
+            for (int j = Math.max(1, pos.getColumn() - 1); j <= Math.min(cols, pos.getColumn() + 1); j++) {
+                if (!(i == pos.getRow() && j == pos.getColumn()) && cellAt(i, j) == Game.MINE_CELL) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the content of a cell of the band or of its halo.
+     *
+     * @param row The row (1-based)
+     * @param col The column (1-based)
+     * @return The character representing the cell's content
+     */
+    private char cellAt(int row, int col) {
+        return cells[row - haloFirst][col - 1];
+    }
+
+    /**
+     * Writes the whole state of a player.
+     *
+     * @param out The stream to write to
+     * @param player The player
+     * @throws IOException if the connection fails
+     */
+    static void writePlayer(DataOutputStream out, Player player) throws IOException {
+        out.writeUTF(player.getName());
+        out.writeInt(player.getPosition().getRow());
+        out.writeInt(player.getPosition().getColumn());
+        out.writeInt(player.getActiveShieldDuration());
+        out.writeInt(player.getPendingShieldDuration());
+        out.writeInt(player.getTotalMoves());
+        out.writeBoolean(player.isEliminated());
+        out.writeBoolean(player.hasCollectedCrystal());
+    }
+
+    /**
+     * Reads the state of a player written by writePlayer.
+     *
+     * @param in The stream to read from
+     * @return A new Player with the state read
+     * @throws IOException if the connection fails
+     */
+    static Player readPlayer(DataInputStream in) throws IOException {
+        return new Player(in.readUTF(), in.readInt(), in.readInt(), in.readInt(), in.readInt(),
+                in.readInt(), in.readBoolean(), in.readBoolean());
+    }
+}
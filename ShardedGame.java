@@ -0,0 +1,517 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * A game on a generated map too large for one process. The board is split into bands of
+ * consecutive rows, each owned by a ShardWorker process started on the same machine and
+ * reached over a local socket. The coordinator, this class, never holds any cell: it keeps
+ * the turn order, a copy of the state of every player for occupancy checks and ranking,
+ * and the owner of every player.
+ *
+ * A move inside one band is a single request to its worker. A move across a band edge is
+ * handed off: the old worker gives the player up, and the new worker receives them and
+ * applies the destination cell. When a worker clears a cell on the edge of its band, the
+ * coordinator copies the change into the halo of the neighboring band, so detections on
+ * band edges stay local to one worker.
+ *
+ * Results follow the rules of Game. Running main with "verify" plays the same actions on
+ * a Game holding the whole map and compares every result.
+ *
+ * Usage: java ShardedGame rows cols shards seed actions [verify]
+ */
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+import static java.lang.Integer.parseInt;
+
+public class ShardedGame {
+    private static final int CONNECT_TIMEOUT_MILLIS = 60_000;
+
+    /**
+     * Map settings and player count used by main.
+     */
+    private static final double MINE_DENSITY = 0.05;
+    private static final double SHIELD_DENSITY = 0.05;
+    private static final int MAX_SHIELD = 5;
+    private static final int CRYSTALS = 1;
+    private static final int PLAYERS = 8;
+    private static final String[] DIRECTIONS = {"up", "down", "left", "right"};
+    private static final String VERIFY = "verify";
+
+    private static final String MSG_USAGE = "Usage: java ShardedGame rows cols shards seed actions [verify]%n";
+    private static final String MSG_RESULT = "%d actions on %d x %d with %d workers in %.2f s (%.0f actions/s)%n";
+    private static final String MSG_VERIFIED = "Verified against Game: %d mismatches%n";
+
+    private final int rows;
+    private final int cols;
+    private final int bandRows;
+    private final Position crystal;
+    private final Process[] workers;
+    private final Socket[] sockets;
+    private final DataInputStream[] ins;
+    private final DataOutputStream[] outs;
+    private final Player[] players;
+    private final int[] owners;
+    private int allPlayers;
+    private int activePlayers;
+    private int currentPlayerIndex;
+    private boolean isGameOver;
+
+    /**
+     * Starts the workers of a game on a generated map and waits for them to connect.
+     *
+     * @param rows Number of rows of the map
+     * @param cols Number of columns of the map
+     * @param mineDensity Probability of each cell holding a mine
+     * @param shieldDensity Probability of each cell holding a shield
+     * @param maxShield Maximum shield duration (1-9)
+     * @param crystals Number of crystals placed on the map
+     * @param seed The map seed
+     * @param shards The number of worker processes
+     * @param maxPlayers The maximum number of players
+     * @throws IllegalStateException if the workers cannot be started
+     */
+    public ShardedGame(int rows, int cols, double mineDensity, double shieldDensity, int maxShield,
+                       int crystals, long seed, int shards, int maxPlayers) {
+        this.rows = rows;
+        this.cols = cols;
+        this.bandRows = (rows + Math.min(shards, rows) - 1) / Math.min(shards, rows);
+        int bands = (rows + bandRows - 1) / bandRows;
+        this.crystal = new MapGenerator(rows, cols, mineDensity, shieldDensity, maxShield, crystals)
+                .getCrystalPosition(seed);
+        this.workers = new Process[bands];
+        this.sockets = new Socket[bands];
+        this.ins = new DataInputStream[bands];
+        this.outs = new DataOutputStream[bands];
+        this.players = new Player[maxPlayers];
+        this.owners = new int[maxPlayers];
+        String[] settings = {Integer.toString(rows), Integer.toString(cols), Double.toString(mineDensity),
+                Double.toString(shieldDensity), Integer.toString(maxShield), Integer.toString(crystals)};
+        try {
+            startWorkers(settings, seed);
+        } catch (IOException e) {
+            close();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Launches one worker process per band and accepts their connections.
+     *
+     * @param settings The generator settings
+     * @param seed The map seed
+     * @throws IOException if a worker cannot be started or does not connect
+     */
+    private void startWorkers(String[] settings, long seed) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        try (ServerSocket server = new ServerSocket(0, workers.length, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+            for (int shard = 0; shard < workers.length; shard++) {
+                int first = shard * bandRows + 1;
+                int count = Math.min(rows, first + bandRows - 1) - first + 1;
+                workers[shard] = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        "ShardWorker", Integer.toString(server.getLocalPort()), Integer.toString(shard),
+                        Long.toString(seed), settings[0], settings[1], settings[2], settings[3],
+                        settings[4], settings[5], Integer.toString(first), Integer.toString(count))
+                        .inheritIO()
+                        .start();
+            }
+            for (int i = 0; i < workers.length; i++) {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                int shard = in.readInt();
+                sockets[shard] = socket;
+                ins[shard] = in;
+                outs[shard] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            }
+        }
+    }
+
+    /**
+     * Adds a player on an empty, unoccupied cell.
+     *
+     * @param row The row coordinate for the new player
+     * @param col The column coordinate for the new player
+     * @param name The name of the new player
+     * @return true if the player was added
+     */
+    public boolean addPlayer(int row, int col, String name) {
+        Position pos = new Position(row, col);
+        if (allPlayers == players.length || !pos.isValidPosition(rows, cols) || isPositionTaken(pos)) {
+            return false;
+        }
+        int shard = shardOf(row);
+        try {
+            DataOutputStream out = outs[shard];
+            out.writeInt(ShardWorker.OP_ADD);
+            out.writeInt(allPlayers);
+            out.writeInt(row);
+            out.writeInt(col);
+            out.writeUTF(name);
+            out.flush();
+            if (!ins[shard].readBoolean()) {
+                return false;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        players[allPlayers] = new Player(name, row, col);
+        owners[allPlayers] = shard;
+        allPlayers++;
+        activePlayers++;
+        return true;
+    }
+
+    /**
+     * Moves the current player, as Game.movePlayer does.
+     *
+     * @param direction The direction to move ("up", "down", "left", "right")
+     * @return An integer constant indicating the move result
+     */
+    public int movePlayer(String direction) {
+        int slot = currentPlayerIndex;
+        Position to = players[slot].getPosition().calculateNewPosition(direction);
+        int result;
+        try {
+            if (!to.isValidPosition(rows, cols) || isPositionTaken(to)) {
+                result = to.isValidPosition(rows, cols) ? Game.MOVE_POSITION_OCCUPIED : Game.MOVE_OUT_OF_BOUNDS;
+                request(ShardWorker.OP_FINISH, slot);
+                players[slot] = ShardWorker.readPlayer(ins[owners[slot]]);
+            } else {
+                result = moveWithin(slot, to);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        if (result == Game.MOVE_MINE_HIT) {
+            activePlayers--;
+            if (activePlayers == 1) {
+                isGameOver = true;
+            }
+        } else if (result == Game.MOVE_CRYSTAL_FOUND) {
+            isGameOver = true;
+        }
+        nextTurn();
+        return result;
+    }
+
+    /**
+     * Moves a player onto a valid, unoccupied cell, handing them off to the worker of the
+     * destination if it lies in another band, and updates the halo of the neighboring band
+     * if an edge cell was cleared.
+     *
+     * @param slot The index of the player
+     * @param to The destination
+     * @return An integer constant indicating the move result
+     * @throws IOException if a worker connection fails
+     */
+    private int moveWithin(int slot, Position to) throws IOException {
+        int target = shardOf(to.getRow());
+        DataOutputStream out = outs[target];
+        if (target == owners[slot]) {
+            out.writeInt(ShardWorker.OP_MOVE);
+            out.writeInt(slot);
+        } else {
+            request(ShardWorker.OP_LEAVE, slot);
+            Player leaving = ShardWorker.readPlayer(ins[owners[slot]]);
+            owners[slot] = target;
+            out.writeInt(ShardWorker.OP_ENTER);
+            out.writeInt(slot);
+            ShardWorker.writePlayer(out, leaving);
+        }
+        out.writeInt(to.getRow());
+        out.writeInt(to.getColumn());
+        out.flush();
+
+        DataInputStream in = ins[target];
+        int result = in.readInt();
+        int edgeRow = in.readInt();
+        int edgeCol = in.readInt();
+        players[slot] = ShardWorker.readPlayer(in);
+        if (edgeRow != ShardWorker.NO_EDGE_CELL) {
+            copyToHalo(target, edgeRow, edgeCol);
+        }
+        return result;
+    }
+
+    /**
+     * Clears a cell in the halo of the bands next to the band that cleared it.
+     *
+     * @param shard The band that cleared the cell
+     * @param row The row of the cell (1-based)
+     * @param col The column of the cell (1-based)
+     * @throws IOException if a worker connection fails
+     */
+    private void copyToHalo(int shard, int row, int col) throws IOException {
+        int first = shard * bandRows + 1;
+        int last = Math.min(rows, first + bandRows - 1);
+        if (row == first && shard > 0) {
+            sendClear(shard - 1, row, col);
+        }
+        if (row == last && shard + 1 < workers.length) {
+            sendClear(shard + 1, row, col);
+        }
+    }
+
+    /**
+     * Tells a worker that a cell of its halo was cleared. No reply is expected.
+     *
+     * @param shard The worker to tell
+     * @param row The row of the cell (1-based)
+     * @param col The column of the cell (1-based)
+     * @throws IOException if the worker connection fails
+     */
+    private void sendClear(int shard, int row, int col) throws IOException {
+        DataOutputStream out = outs[shard];
+        out.writeInt(ShardWorker.OP_CLEAR);
+        out.writeInt(row);
+        out.writeInt(col);
+        out.flush();
+    }
+
+    /**
+     * Counts the mines around the current player, as Game.detect does.
+     *
+     * @return The number of mines in adjacent cells
+     */
+    public int detect() {
+        int slot = currentPlayerIndex;
+        int mines;
+        try {
+            request(ShardWorker.OP_DETECT, slot);
+            DataInputStream in = ins[owners[slot]];
+            mines = in.readInt();
+            players[slot] = ShardWorker.readPlayer(in);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        nextTurn();
+        return mines;
+    }
+
+    /**
+     * Skips the turn of the current player.
+     */
+    public void skip() {
+        int slot = currentPlayerIndex;
+        try {
+            request(ShardWorker.OP_FINISH, slot);
+            players[slot] = ShardWorker.readPlayer(ins[owners[slot]]);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        nextTurn();
+    }
+
+    /**
+     * Sends a request about a player to the worker owning them.
+     *
+     * @param op The request code
+     * @param slot The index of the player
+     * @throws IOException if the worker connection fails
+     */
+    private void request(int op, int slot) throws IOException {
+        DataOutputStream out = outs[owners[slot]];
+        out.writeInt(op);
+        out.writeInt(slot);
+        out.flush();
+    }
+
+    /**
+     * Checks if a position is occupied by an active player.
+     *
+     * @param pos The position to check
+     * @return true if an active player stands there
+     */
+    private boolean isPositionTaken(Position pos) {
+        for (int i = 0; i < allPlayers; i++) {
+            if (!players[i].isEliminated() && players[i].getPosition().equals(pos)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Advances to the next active player, as Game does, unless the game is over.
+     */
+    private void nextTurn() {
+        if (isGameOver) {
+            return;
+        }
+        int startingIndex = currentPlayerIndex;
+        do {
+            currentPlayerIndex = (currentPlayerIndex + 1) % allPlayers;
+            if (currentPlayerIndex == startingIndex) {
+                isGameOver = true;
+                return;
+            }
+        } while (players[currentPlayerIndex].isEliminated());
+    }
+
+    /**
+     * Gets the band owning a row.
+     *
+     * @param row The row (1-based)
+     * @return The shard index
+     */
+    private int shardOf(int row) {
+        return (row - 1) / bandRows;
+    }
+
+    /**
+     * Ranks the players by the rules of Game.
+     *
+     * @return An iterator over the players, best first
+     */
+    public MyIterator getRankedPlayers() {
+        return Game.rankPlayers(players, allPlayers, crystal);
+    }
+
+    /**
+     * Checks if the game has ended.
+     *
+     * @return true if the game is over
+     */
+    public boolean isGameOver() {
+        return isGameOver;
+    }
+
+    /**
+     * Gets the index of the player whose turn it is.
+     *
+     * @return The index of the current player
+     */
+    public int getCurrentPlayerIndex() {
+        return currentPlayerIndex;
+    }
+
+    /**
+     * Gets the latest state of a player reported by the workers.
+     *
+     * @param index The index of the player
+     * @return The Player object
+     */
+    public Player getPlayer(int index) {
+        return players[index];
+    }
+
+    /**
+     * Stops the workers and closes their connections.
+     */
+    public void close() {
+        for (int shard = 0; shard < workers.length; shard++) {
+            try {
+                if (outs[shard] != null) {
+                    outs[shard].writeInt(ShardWorker.OP_STOP);
+                    outs[shard].flush();
+                }
+                if (sockets[shard] != null) {
+                    sockets[shard].close();
+                }
+                if (workers[shard] != null) {
+                    workers[shard].waitFor();
+                }
+            } catch (IOException e) {
+                workers[shard].destroy();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                workers[shard].destroy();
+            }
+        }
+    }
+
+    /**
+     * Plays random actions on a partitioned game and reports the throughput, optionally
+     * checking every result against a Game holding the whole map.
+     *
+     * @param args rows, cols, number of workers, seed, number of actions and optionally "verify"
+     */
+    public static void main(String[] args) {
+        if (args.length < 5) {
+            System.out.printf(MSG_USAGE);
+            return;
+        }
+        int rows = parseInt(args[0]);
+        int cols = parseInt(args[1]);
+        int shards = parseInt(args[2]);
+        long seed = Long.parseLong(args[3]);
+        int actions = parseInt(args[4]);
+        Game reference = null;
+        if (args.length > 5 && args[5].equals(VERIFY)) {
+            MapGenerator generator = new MapGenerator(rows, cols, MINE_DENSITY, SHIELD_DENSITY, MAX_SHIELD, CRYSTALS);
+            reference = new Game(generator.generate(seed));
+            reference.initializePlayers(PLAYERS);
+        }
+
+        ShardedGame game = new ShardedGame(rows, cols, MINE_DENSITY, SHIELD_DENSITY, MAX_SHIELD, CRYSTALS,
+                seed, shards, PLAYERS);
+        SplittableRandom random = new SplittableRandom(seed);
+        int added = 0;
+        while (added < PLAYERS) {
+            int row = random.nextInt(rows) + 1;
+            int col = random.nextInt(cols) + 1;
+            String name = "player" + added;
+            if (game.addPlayer(row, col, name)) {
+                if (reference != null && !reference.addPlayer(row, col, name)) {
+                    throw new IllegalStateException(name);
+                }
+                added++;
+            }
+        }
+
+        int mismatches = 0;
+        int played = 0;
+        long start = System.nanoTime();
+        while (played < actions && !game.isGameOver()) {
+            int action = random.nextInt(DIRECTIONS.length + 2);
+            int slot = game.getCurrentPlayerIndex();
+            int result;
+            int expected = 0;
+            if (action < DIRECTIONS.length) {
+                result = game.movePlayer(DIRECTIONS[action]);
+                if (reference != null) {
+                    expected = reference.movePlayer(DIRECTIONS[action]);
+                }
+            } else if (action == DIRECTIONS.length) {
+                result = game.detect();
+                if (reference != null) {
+                    expected = reference.detect();
+                }
+            } else {
+                game.skip();
+                result = 0;
+                if (reference != null) {
+                    reference.skip();
+                }
+            }
+            if (reference != null && (result != expected
+                    || !reference.getPlayer(slot).getPosition().equals(game.getPlayer(slot).getPosition())
+                    || reference.getPlayer(slot).getShieldDuration() != game.getPlayer(slot).getShieldDuration()
+                    || reference.isGameOver() != game.isGameOver())) {
+                mismatches++;
+            }
+            played++;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        game.close();
+
+        System.out.printf(MSG_RESULT, played, rows, cols, game.workers.length, seconds, played / seconds);
+        if (reference != null) {
+            MyIterator expected = reference.getRankedPlayers();
+            MyIterator ranked = game.getRankedPlayers();
+            while (expected.hasNext()) {
+                if (!expected.next().getName().equals(ranked.next().getName())) {
+                    mismatches++;
+                }
+            }
+            System.out.printf(MSG_VERIFIED, mismatches);
+        }
+    }
+}
@@ -0,0 +1,458 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * Analyzes whether the crystal of a map can be reached from every cell. Two searches are
+ * available, both run backwards from the crystal over flat arrays, level by level, with
+ * every step of the frontier expanded in parallel chunks.
+ *
+ * analyze counts the mines a route steps on, ignoring shields: 0 means the crystal can be
+ * reached without stepping on any mine, and higher counts only say how many mines lie on
+ * the cheapest route, not whether a player can survive them.
+ *
+ * analyzeShields also tracks the remaining turns of the active shield, so a route may
+ * cross a mine only while protected, and finds the minimum number of shield pickups that
+ * lets a player starting without a shield reach the crystal. Cells are never treated as
+ * cleared, and a shield picked up while another is active sets the remaining turns to at
+ * least its duration instead of adding to them. Both choices only make the search more
+ * pessimistic than the game, so every route it finds exists, but routes relying on
+ * stacked shields or on re-crossing cleared mines are missed. It uses an int for each of
+ * the ten shield states of every cell, so it needs ten times the memory of analyze.
+ *
+ * Usage: java SolvabilityAnalyzer mapFile
+ */
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class SolvabilityAnalyzer {
+    public static final int UNREACHABLE = -1;
+    private static final int CHUNK_CELLS = 1 << 14;
+
+    /**
+     * Number of shield states of a cell: 0 to 9 remaining turns of the active shield.
+     */
+    private static final int SHIELD_STATES = Game.MAX_SHIELD_CELL - '0' + 1;
+
+    private static final String MSG_USAGE = "Usage: java SolvabilityAnalyzer mapFile%n";
+    private static final String MSG_NO_CRYSTAL = "The map has no crystal%n";
+    private static final String MSG_ANALYZED = "Analyzed %d x %d map in %d ms%n";
+    private static final String MSG_CROSSINGS = "%d empty cells need %d mine crossings%n";
+    private static final String MSG_PICKUPS = "%d empty cells need %d shield pickups%n";
+    private static final String MSG_UNWINNABLE = "%d empty cells cannot reach the crystal%n";
+
+    private final GameMap map;
+    private final int rows;
+    private final int cols;
+    private final AtomicIntegerArray crossings;
+    private int maxCrossings;
+    private AtomicIntegerArray pickups;
+    private int maxPickups;
+
+    public SolvabilityAnalyzer(GameMap map) {
+        this.map = map;
+        this.rows = map.getRows();
+        this.cols = map.getCols();
+        this.crossings = new AtomicIntegerArray(Math.multiplyExact(rows, cols));
+        this.maxCrossings = UNREACHABLE;
+        this.maxPickups = UNREACHABLE;
+    }
+
+    /**
+     * Runs the mine crossing analysis, ignoring shields. Must be called before querying
+     * the crossings.
+     */
+    public void analyze() {
+        Position crystal = map.getCrystalPosition();
+        int[] starts = {};
+        if (crystal != null) {
+            starts = new int[] {(crystal.getRow() - 1) * cols + crystal.getColumn() - 1};
+        }
+        maxCrossings = search(crossings, starts, false);
+    }
+
+    /**
+     * Runs the shield-aware analysis. Must be called before querying the shield pickups.
+     */
+    public void analyzeShields() {
+        pickups = new AtomicIntegerArray(Math.multiplyExact(crossings.length(), SHIELD_STATES));
+        Position crystal = map.getCrystalPosition();
+        int[] starts = {};
+        if (crystal != null) {
+            int cell = (crystal.getRow() - 1) * cols + crystal.getColumn() - 1;
+            starts = new int[SHIELD_STATES];
+            for (int shield = 0; shield < SHIELD_STATES; shield++) {
+                starts[shield] = cell * SHIELD_STATES + shield;
+            }
+        }
+        maxPickups = search(pickups, starts, true);
+    }
+
+    /**
+     * Runs a backwards 0-1 breadth-first search. Entering a costly node (a mine, or a
+     * shield when shields are tracked) costs one, any other step costs nothing.
+     *
+     * @param costs The cost of every node, filled by the search
+     * @param starts The nodes of cost 0
+     * @param shieldAware true if nodes are shield states, false if they are cells
+     * @return The highest cost found, or UNREACHABLE if there are no start nodes
+     */
+    private int search(AtomicIntegerArray costs, int[] starts, boolean shieldAware) {
+        for (int i = 0; i < costs.length(); i++) {
+            costs.set(i, UNREACHABLE);
+        }
+        for (int node : starts) {
+            costs.set(node, 0);
+        }
+
+        int maxCost = UNREACHABLE;
+        int[] frontier = starts;
+        int level = 0;
+        while (frontier.length > 0) {
+            maxCost = level;
+            CellBuffer nextLevel = new CellBuffer();
+            int[] step = frontier;
+            while (step.length > 0) {
+                step = expand(costs, step, level, nextLevel, shieldAware);
+            }
+            level++;
+            frontier = claim(costs, nextLevel, level);
+        }
+        return maxCost;
+    }
+
+    /**
+     * Expands one BFS step of the current level. Predecessors of a free node need the same
+     * cost and are claimed right away; predecessors of a costly node need one more and are
+     * only collected as candidates for the next level.
+     *
+     * @param costs The cost of every node
+     * @param step The nodes reached in the previous step
+     * @param level The cost of the current level
+     * @param nextLevel Collects the candidates for the next level
+     * @param shieldAware true if nodes are shield states, false if they are cells
+     * @return The nodes newly claimed for the current level
+     */
+    private int[] expand(AtomicIntegerArray costs, int[] step, int level, CellBuffer nextLevel,
+                         boolean shieldAware) {
+        int chunks = (step.length + CHUNK_CELLS - 1) / CHUNK_CELLS;
+        IntStream indexes = IntStream.range(0, chunks);
+        if (chunks > 1) {
+            indexes = indexes.parallel();
+        }
+        List<CellBuffer[]> results = indexes
+                .mapToObj(chunk -> expandChunk(costs, step, chunk * CHUNK_CELLS,
+                        Math.min(step.length, (chunk + 1) * CHUNK_CELLS), level, shieldAware))
+                .collect(Collectors.toList());
+
+        CellBuffer sameLevel = new CellBuffer();
+        for (CellBuffer[] result : results) {
+            sameLevel.addAll(result[0]);
+            nextLevel.addAll(result[1]);
+        }
+        return sameLevel.toArray();
+    }
+
+    /**
+     * Expands a chunk of the step frontier.
+     *
+     * @param costs The cost of every node
+     * @param step The nodes reached in the previous step
+     * @param from The first index of the chunk
+     * @param to The index after the last one of the chunk
+     * @param level The cost of the current level
+     * @param shieldAware true if nodes are shield states, false if they are cells
+     * @return The nodes claimed for this level and the candidates for the next level
+     */
+    private CellBuffer[] expandChunk(AtomicIntegerArray costs, int[] step, int from, int to, int level,
+                                     boolean shieldAware) {
+        CellBuffer sameLevel = new CellBuffer();
+        CellBuffer nextLevel = new CellBuffer();
+        for (int k = from; k < to; k++) {
+            if (shieldAware) {
+                expandState(costs, step[k], level, sameLevel, nextLevel);
+            } else {
+                int cell = step[k];
+                boolean mine = map.getCell(cell / cols, cell % cols) == Game.MINE_CELL;
+                visitNeighbors(costs, cell, 1, 0, 0, level, mine, mine ? nextLevel : sameLevel);
+            }
+        }
+        return new CellBuffer[] {sameLevel, nextLevel};
+    }
+
+    /**
+     * Expands a shield state: a cell entered with a number of remaining shield turns left
+     * after the move. Finds the shield states of the neighbors from which that move leads
+     * to this state, following the rules of Game: a mine needs an active shield, a shield
+     * cell gives at least its duration, and every move uses one turn of the active shield.
+     *
+     * @param costs The cost of every shield state
+     * @param node The shield state, cell * SHIELD_STATES + remaining turns
+     * @param level The cost of the current level
+     * @param sameLevel Collects the predecessors of the same cost
+     * @param nextLevel Collects the predecessors costing one more
+     */
+    private void expandState(AtomicIntegerArray costs, int node, int level,
+                             CellBuffer sameLevel, CellBuffer nextLevel) {
+        int cell = node / SHIELD_STATES;
+        int after = node % SHIELD_STATES;
+        char content = map.getCell(cell / cols, cell % cols);
+        boolean shield = content >= Game.MIN_SHIELD_CELL && content <= Game.MAX_SHIELD_CELL;
+        int low = after + 1;
+        int high = after + 1;
+        if (shield) {
+            int duration = content - '0';
+            if (after == duration) {
+                low = 0;
+                high = Math.min(duration + 1, SHIELD_STATES - 1);
+            } else if (after < duration) {
+                return;
+            }
+        } else if (content != Game.MINE_CELL && after == 0) {
+            low = 0;
+        }
+        if (high >= SHIELD_STATES) {
+            return;
+        }
+        visitNeighbors(costs, cell, SHIELD_STATES, low, high, level, shield, shield ? nextLevel : sameLevel);
+    }
+
+    /**
+     * Visits the nodes of the four neighbors of a frontier cell, from state low to state
+     * high of each neighbor.
+     *
+     * @param costs The cost of every node
+     * @param cell The frontier cell
+     * @param states The number of nodes per cell
+     * @param low The first shield state to visit
+     * @param high The last shield state to visit
+     * @param level The cost of the current level
+     * @param costly true if entering the frontier cell costs one
+     * @param target The buffer receiving the neighbors
+     */
+    private void visitNeighbors(AtomicIntegerArray costs, int cell, int states, int low, int high, int level,
+                                boolean costly, CellBuffer target) {
+        int row = cell / cols;
+        int col = cell - row * cols;
+        for (int state = low; state <= high; state++) {
+            if (row > 0) {
+                visit(costs, (cell - cols) * states + state, level, costly, target);
+            }
+            if (row < rows - 1) {
+                visit(costs, (cell + cols) * states + state, level, costly, target);
+            }
+            if (col > 0) {
+                visit(costs, (cell - 1) * states + state, level, costly, target);
+            }
+            if (col < cols - 1) {
+                visit(costs, (cell + 1) * states + state, level, costly, target);
+            }
+        }
+    }
+
+    /**
+     * Visits a predecessor of a frontier node.
+     *
+     * @param costs The cost of every node
+     * @param node The predecessor node
+     * @param level The cost of the current level
+     * @param costly true if reaching the frontier node from the predecessor costs one
+     * @param target The buffer receiving the predecessor
+     */
+    private void visit(AtomicIntegerArray costs, int node, int level, boolean costly, CellBuffer target) {
+        if (costs.get(node) != UNREACHABLE) {
+            return;
+        }
+        if (costly || costs.compareAndSet(node, UNREACHABLE, level)) {
+            target.add(node);
+        }
+    }
+
+    /**
+     * Claims the candidates of a new level that were not reached by a cheaper route.
+     *
+     * @param costs The cost of every node
+     * @param candidates The candidate nodes, possibly with duplicates
+     * @param level The cost of the new level
+     * @return The nodes forming the frontier of the new level
+     */
+    private int[] claim(AtomicIntegerArray costs, CellBuffer candidates, int level) {
+        CellBuffer frontier = new CellBuffer();
+        for (int i = 0; i < candidates.size; i++) {
+            int node = candidates.data[i];
+            if (costs.compareAndSet(node, UNREACHABLE, level)) {
+                frontier.add(node);
+            }
+        }
+        return frontier.toArray();
+    }
+
+    /**
+     * Gets the minimum number of mines on a route from a cell to the crystal, ignoring
+     * whether the player could be protected when stepping on them.
+     *
+     * @param pos The starting position (1-based coordinates)
+     * @return The minimum number of mine crossings, or UNREACHABLE if there is no crystal
+     */
+    public int getMinCrossings(Position pos) {
+        return crossings.get((pos.getRow() - 1) * cols + pos.getColumn() - 1);
+    }
+
+    /**
+     * Checks if the crystal can be reached from a cell without stepping on any mine.
+     *
+     * @param pos The starting position (1-based coordinates)
+     * @return true if a mine-free route exists
+     */
+    public boolean isReachableWithoutMines(Position pos) {
+        return getMinCrossings(pos) == 0;
+    }
+
+    /**
+     * Gets the minimum number of shields a player starting on a cell without a shield
+     * must pick up to reach the crystal, crossing mines only while protected. Stepping on
+     * a shield cell always picks it up, so routes without mines may still count pickups.
+     *
+     * @param pos The starting position (1-based coordinates)
+     * @return The minimum number of shield pickups, or UNREACHABLE if no route was found
+     */
+    public int getMinShieldPickups(Position pos) {
+        return pickups.get(((pos.getRow() - 1) * cols + pos.getColumn() - 1) * SHIELD_STATES);
+    }
+
+    /**
+     * Checks if a player starting on a cell without a shield can reach the crystal,
+     * picking up shields on the way if needed.
+     *
+     * @param pos The starting position (1-based coordinates)
+     * @return true if a surviving route was found
+     */
+    public boolean isWinnable(Position pos) {
+        return getMinShieldPickups(pos) != UNREACHABLE;
+    }
+
+    /**
+     * Gets the largest number of crossings needed from any cell.
+     *
+     * @return The maximum of the minimum crossings, or UNREACHABLE if there is no crystal
+     */
+    public int getMaxCrossings() {
+        return maxCrossings;
+    }
+
+    /**
+     * Gets the largest number of shield pickups needed from any cell that can win.
+     *
+     * @return The maximum of the minimum pickups, or UNREACHABLE if there is no crystal
+     */
+    public int getMaxShieldPickups() {
+        return maxPickups;
+    }
+
+    /**
+     * Counts the empty cells, where players may spawn, for each number of crossings.
+     * The last entry counts the cells from which the crystal cannot be reached.
+     *
+     * @return An array where entry k is the number of empty cells needing k crossings
+     */
+    public long[] countSpawnsByCrossings() {
+        return countSpawns(crossings, 1, maxCrossings);
+    }
+
+    /**
+     * Counts the empty cells, where players may spawn, for each number of shield pickups.
+     * The last entry counts the cells from which the crystal cannot be reached.
+     *
+     * @return An array where entry k is the number of empty cells needing k pickups
+     */
+    public long[] countSpawnsByShieldPickups() {
+        return countSpawns(pickups, SHIELD_STATES, maxPickups);
+    }
+
+    /**
+     * Counts the empty cells for each cost of their first node.
+     *
+     * @param costs The cost of every node
+     * @param states The number of nodes per cell
+     * @param maxCost The highest cost found
+     * @return The counts by cost, with the unreachable cells in the last entry
+     */
+    private long[] countSpawns(AtomicIntegerArray costs, int states, int maxCost) {
+        long[] counts = new long[maxCost + 2];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int needed = costs.get((i * cols + j) * states);
+                if (map.getCell(i, j) == Game.EMPTY_CELL) {
+                    counts[needed == UNREACHABLE ? counts.length - 1 : needed]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Analyzes a map file and prints how many spawn cells need each number of crossings.
+     *
+     * @param args The map file path
+     */
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.out.printf(MSG_USAGE);
+            return;
+        }
+        GameMap map = MapFile.read(args[0]);
+        if (map.getCrystalPosition() == null) {
+            System.out.printf(MSG_NO_CRYSTAL);
+            return;
+        }
+        long start = System.nanoTime();
+        SolvabilityAnalyzer analyzer = new SolvabilityAnalyzer(map);
+        analyzer.analyze();
+        System.out.printf(MSG_ANALYZED, map.getRows(), map.getCols(), (System.nanoTime() - start) / 1_000_000);
+
+        long[] counts = analyzer.countSpawnsByCrossings();
+        for (int k = 0; k < counts.length - 1; k++) {
+            if (counts[k] > 0) {
+                System.out.printf(MSG_CROSSINGS, counts[k], k);
+            }
+        }
+
+        start = System.nanoTime();
+        analyzer.analyzeShields();
+        System.out.printf(MSG_ANALYZED, map.getRows(), map.getCols(), (System.nanoTime() - start) / 1_000_000);
+        counts = analyzer.countSpawnsByShieldPickups();
+        for (int k = 0; k < counts.length - 1; k++) {
+            if (counts[k] > 0) {
+                System.out.printf(MSG_PICKUPS, counts[k], k);
+            }
+        }
+        System.out.printf(MSG_UNWINNABLE, counts[counts.length - 1]);
+    }
+
+    /**
+     * A growable array of cell indexes.
+     */
+    private static class CellBuffer {
+        private int[] data = new int[16];
+        private int size;
+
+        private void add(int cell) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = cell;
+        }
+
+        private void addAll(CellBuffer other) {
+            if (size + other.size > data.length) {
+                data = Arrays.copyOf(data, Math.max(size + other.size, size * 2));
+            }
+            System.arraycopy(other.data, 0, data, size, other.size);
+            size += other.size;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
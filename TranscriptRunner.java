@@ -0,0 +1,219 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * Replays a corpus of recorded game transcripts inside one process. Every transcript is a
+ * pair of files in the same directory: NAME.in holds the input given to Main (map file
+ * name, players and commands) and NAME.out the output it is expected to produce.
+ * Transcripts are played concurrently by a pool of threads, each on its own Game with
+ * in-memory input and output streams, while the parsed maps are shared through the map
+ * cache of Main. Outputs are compared line by line, and the first differing line of every
+ * failed transcript is reported together with the overall throughput.
+ *
+ * Map file names in the transcripts are resolved from the working directory, as when
+ * running Main directly.
+ *
+ * Usage: java TranscriptRunner directory [threads]
+ */
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import static java.lang.Integer.parseInt;
+
+public class TranscriptRunner {
+    private static final String INPUT_SUFFIX = ".in";
+    private static final String OUTPUT_SUFFIX = ".out";
+    private static final int MAX_REPORTED = 50;
+
+    /**
+     * Outcomes of a transcript.
+     */
+    private static final int RESULT_PASSED = 0;
+    private static final int RESULT_FAILED = 1;
+    private static final int RESULT_ERROR = 2;
+
+    private static final String MSG_USAGE = "Usage: java TranscriptRunner directory [threads]%n";
+    private static final String MSG_FAILED = "FAIL %s: line %d: expected \"%s\", got \"%s\"%n";
+    private static final String MSG_ERROR = "ERROR %s: %s%n";
+    private static final String MSG_MORE = "... and %d more%n";
+    private static final String MSG_SUMMARY =
+            "%d transcripts: %d passed, %d failed, %d errors in %.2f s (%.1f transcripts/s, %d threads)%n";
+    private static final String MSG_CACHE = "Map cache: %d hits, %d misses%n";
+    private static final String MISSING_LINE = "<end of output>";
+
+    /**
+     * Runs every transcript of a directory and prints the report. Exits with status 1 if
+     * any transcript failed.
+     *
+     * @param args The corpus directory and, optionally, the number of threads
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.printf(MSG_USAGE);
+            return;
+        }
+        int threads = args.length > 1 ? parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        List<Path> inputs = findInputs(args[0]);
+
+        long start = System.nanoTime();
+        List<Result> results = runAll(inputs, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int[] counts = new int[RESULT_ERROR + 1];
+        int reported = 0;
+        for (Result result : results) {
+            counts[result.outcome]++;
+            if (result.outcome != RESULT_PASSED && reported++ < MAX_REPORTED) {
+                result.print();
+            }
+        }
+        if (reported > MAX_REPORTED) {
+            System.out.printf(MSG_MORE, reported - MAX_REPORTED);
+        }
+        System.out.printf(MSG_SUMMARY, results.size(), counts[RESULT_PASSED], counts[RESULT_FAILED],
+                counts[RESULT_ERROR], seconds, results.size() / seconds, threads);
+        MapCache cache = Main.getMapCache();
+        System.out.printf(MSG_CACHE, cache.getHits(), cache.getMisses());
+        if (counts[RESULT_PASSED] != results.size()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs transcripts on a pool of threads.
+     *
+     * @param inputs The input files of the transcripts
+     * @param threads The number of threads
+     * @return The result of every transcript, in the order of the inputs
+     */
+    public static List<Result> runAll(List<Path> inputs, int threads) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result>> pending = new ArrayList<>(inputs.size());
+            for (Path input : inputs) {
+                pending.add(pool.submit(() -> run(input)));
+            }
+            List<Result> results = new ArrayList<>(inputs.size());
+            for (Future<Result> future : pending) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Plays one transcript and compares its output with the expected one.
+     *
+     * @param input The input file of the transcript
+     * @return The result of the transcript
+     */
+    public static Result run(Path input) {
+        String name = input.getFileName().toString();
+        name = name.substring(0, name.length() - INPUT_SUFFIX.length());
+        try {
+            String expected = Files.readString(input.resolveSibling(name + OUTPUT_SUFFIX));
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (Scanner in = new Scanner(Files.readString(input));
+                 PrintStream out = new PrintStream(buffer)) {
+                Main.play(in, out);
+            }
+            return compare(name, expected, buffer.toString());
+        } catch (IOException | RuntimeException e) {
+            return new Result(name, RESULT_ERROR, 0, null, e.toString());
+        }
+    }
+
+    /**
+     * Compares two outputs line by line, ignoring the difference between line separators.
+     *
+     * @param name The name of the transcript
+     * @param expected The expected output
+     * @param actual The output produced
+     * @return A passed result, or a failed one describing the first differing line
+     */
+    private static Result compare(String name, String expected, String actual) {
+        String[] wanted = expected.split("\r?\n", -1);
+        String[] got = actual.split("\r?\n", -1);
+        int lines = Math.max(wanted.length, got.length);
+        for (int i = 0; i < lines; i++) {
+            String want = i < wanted.length ? wanted[i] : MISSING_LINE;
+            String have = i < got.length ? got[i] : MISSING_LINE;
+            if (!want.equals(have)) {
+                return new Result(name, RESULT_FAILED, i + 1, want, have);
+            }
+        }
+        return new Result(name, RESULT_PASSED, 0, null, null);
+    }
+
+    /**
+     * Lists the input files of the transcripts of a directory, sorted by name.
+     *
+     * @param directory The corpus directory
+     * @return The paths of the input files
+     * @throws IllegalArgumentException if the directory cannot be read
+     */
+    private static List<Path> findInputs(String directory) {
+        try (Stream<Path> files = Files.list(Paths.get(directory))) {
+            return files.filter(path -> path.getFileName().toString().endsWith(INPUT_SUFFIX))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new IllegalArgumentException(directory);
+        }
+    }
+
+    /**
+     * The outcome of one transcript.
+     */
+    public static class Result {
+        private final String name;
+        private final int outcome;
+        private final int line;
+        private final String expected;
+        private final String actual;
+
+        private Result(String name, int outcome, int line, String expected, String actual) {
+            this.name = name;
+            this.outcome = outcome;
+            this.line = line;
+            this.expected = expected;
+            this.actual = actual;
+        }
+
+        /**
+         * Checks if the transcript produced the expected output.
+         *
+         * @return true if the outputs matched
+         */
+        public boolean isPassed() {
+            return outcome == RESULT_PASSED;
+        }
+
+        /**
+         * Prints the failure or error of the transcript.
+         */
+        private void print() {
+            if (outcome == RESULT_FAILED) {
+                System.out.printf(MSG_FAILED, name, line, expected, actual);
+            } else {
+                System.out.printf(MSG_ERROR, name, actual);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * A fixed-size table mapping state hashes to 64-bit values, shared by bot threads without
+ * locks. Each slot keeps the value and the hash XOR-ed with the value; a read only accepts
+ * the slot when both words agree, so an entry torn by two concurrent writers is seen as a
+ * miss instead of returning a value for the wrong state. New entries always replace the
+ * entry in their slot.
+ *
+ * The lowest bit of the stored hash is always set, so an empty slot, whose words are both
+ * 0, never matches, not even the hash 0. No information is lost: the bit also takes part
+ * in choosing the slot, so two hashes sharing a slot and differing in it differ elsewhere.
+ */
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class TranspositionTable {
+    private static final long OCCUPIED = 1L;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    /**
+     * Creates a table with a number of entries rounded up to a power of two.
+     *
+     * @param entries The minimum number of entries
+     */
+    public TranspositionTable(int entries) {
+        int capacity = Integer.highestOneBit(Math.max(1, entries - 1)) << 1;
+        this.slots = new AtomicLongArray(capacity * 2);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Stores a value for a state.
+     *
+     * @param hash The hash of the state
+     * @param value The value to store, packed by the caller
+     */
+    public void put(long hash, long value) {
+        int slot = index(hash);
+        slots.setRelease(slot, (hash | OCCUPIED) ^ value);
+        slots.setRelease(slot + 1, value);
+    }
+
+    /**
+     * Gets the value stored for a state.
+     *
+     * @param hash The hash of the state
+     * @param missing The value to return when the state is not in the table
+     * @return The stored value, or missing
+     */
+    public long get(long hash, long missing) {
+        int slot = index(hash);
+        long check = slots.getAcquire(slot);
+        long value = slots.getAcquire(slot + 1);
+        return (check ^ value) == (hash | OCCUPIED) ? value : missing;
+    }
+
+    /**
+     * Gets the position of the first word of the slot of a hash.
+     *
+     * @param hash The hash of the state
+     * @return The array index of the slot
+     */
+    private int index(long hash) {
+        return ((int) (hash ^ (hash >>> 32)) & mask) << 1;
+    }
+}
@@ -0,0 +1,380 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * A compressed set of cell indexes (row * cols + col, 0-based) in the style of a roaring
+ * bitmap. Cells are grouped by the high 16 bits of their index; each group is stored as a
+ * sorted array of the low 16 bits while small, and as a 65536-bit bitmap once it grows
+ * past 4096 cells. Memory therefore grows with the number of cells stored and how they
+ * cluster, not with the size of the grid. Supports union and intersection of whole sets.
+ */
+import java.util.Arrays;
+
+public class VisibilitySet {
+    private static final int KEY_SHIFT = 16;
+    private static final int LOW_MASK = 0xFFFF;
+    private static final int INITIAL_CONTAINERS = 4;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    public VisibilitySet() {
+        this.keys = new char[INITIAL_CONTAINERS];
+        this.containers = new Container[INITIAL_CONTAINERS];
+        this.size = 0;
+    }
+
+    /**
+     * Adds a cell to the set.
+     *
+     * @param cell The non-negative cell index
+     * @return true if the cell was not already in the set
+     */
+    public boolean add(int cell) {
+        char key = (char) (cell >>> KEY_SHIFT);
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key, new Container());
+        }
+        return containers[index].add((char) (cell & LOW_MASK));
+    }
+
+    /**
+     * Checks if a cell is in the set.
+     *
+     * @param cell The non-negative cell index
+     * @return true if the cell is in the set
+     */
+    public boolean contains(int cell) {
+        int index = Arrays.binarySearch(keys, 0, size, (char) (cell >>> KEY_SHIFT));
+        return index >= 0 && containers[index].contains((char) (cell & LOW_MASK));
+    }
+
+    /**
+     * Gets the number of cells in the set.
+     *
+     * @return The number of cells
+     */
+    public long cardinality() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += containers[i].count;
+        }
+        return total;
+    }
+
+    /**
+     * Estimates the memory used by the set, counting only the container payloads.
+     *
+     * @return The approximate size in bytes
+     */
+    public long getSizeInBytes() {
+        long total = (long) keys.length * Character.BYTES;
+        for (int i = 0; i < size; i++) {
+            total += containers[i].getSizeInBytes();
+        }
+        return total;
+    }
+
+    /**
+     * Creates the union of two sets, for example the combined view of a team.
+     *
+     * @param a The first set
+     * @param b The second set
+     * @return A new set with every cell in either set
+     */
+    public static VisibilitySet union(VisibilitySet a, VisibilitySet b) {
+        VisibilitySet result = new VisibilitySet();
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            if (j == b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+                result.appendContainer(a.keys[i], a.containers[i].copy());
+                i++;
+            } else if (i == a.size || b.keys[j] < a.keys[i]) {
+                result.appendContainer(b.keys[j], b.containers[j].copy());
+                j++;
+            } else {
+                result.appendContainer(a.keys[i], Container.union(a.containers[i], b.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates the intersection of two sets, for example the cells known to a whole team.
+     *
+     * @param a The first set
+     * @param b The second set
+     * @return A new set with every cell in both sets
+     */
+    public static VisibilitySet intersection(VisibilitySet a, VisibilitySet b) {
+        VisibilitySet result = new VisibilitySet();
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (b.keys[j] < a.keys[i]) {
+                j++;
+            } else {
+                Container common = Container.intersection(a.containers[i], b.containers[j]);
+                if (common.count > 0) {
+                    result.appendContainer(a.keys[i], common);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Inserts a container at a position of the sorted key array.
+     *
+     * @param index The position to insert at
+     * @param key The high 16 bits shared by the cells of the container
+     * @param container The container to insert
+     */
+    private void insertContainer(int index, char key, Container container) {
+        ensureCapacity();
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    /**
+     * Appends a container whose key is larger than every key already in the set.
+     *
+     * @param key The high 16 bits shared by the cells of the container
+     * @param container The container to append
+     */
+    private void appendContainer(char key, Container container) {
+        ensureCapacity();
+        keys[size] = key;
+        containers[size] = container;
+        size++;
+    }
+
+    /**
+     * Makes room for one more container.
+     */
+    private void ensureCapacity() {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+    }
+
+    /**
+     * The cells sharing the same high 16 bits, stored as a sorted array of their low
+     * 16 bits or, once there are more than ARRAY_LIMIT of them, as a bitmap.
+     */
+    private static class Container {
+        private static final int ARRAY_LIMIT = 4096;
+        private static final int BITMAP_WORDS = (LOW_MASK + 1) / Long.SIZE;
+        private static final int INITIAL_VALUES = 4;
+
+        private char[] values;
+        private long[] bits;
+        private int count;
+
+        private Container() {
+            this.values = new char[INITIAL_VALUES];
+        }
+
+        /**
+         * Adds the low 16 bits of a cell index, switching to a bitmap when the array is full.
+         *
+         * @param low The low 16 bits of the cell index
+         * @return true if the value was not already present
+         */
+        private boolean add(char low) {
+            if (bits != null) {
+                long before = bits[low >>> 6];
+                bits[low >>> 6] = before | (1L << low);
+                if (before == bits[low >>> 6]) {
+                    return false;
+                }
+                count++;
+                return true;
+            }
+            int index = Arrays.binarySearch(values, 0, count, low);
+            if (index >= 0) {
+                return false;
+            }
+            if (count == ARRAY_LIMIT) {
+                toBitmap();
+                return add(low);
+            }
+            index = -index - 1;
+            if (count == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, count * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, count - index);
+            values[index] = low;
+            count++;
+            return true;
+        }
+
+        /**
+         * Checks if the low 16 bits of a cell index are present.
+         *
+         * @param low The low 16 bits of the cell index
+         * @return true if the value is present
+         */
+        private boolean contains(char low) {
+            if (bits != null) {
+                return (bits[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, count, low) >= 0;
+        }
+
+        /**
+         * Gets the size of the container payload.
+         *
+         * @return The size in bytes
+         */
+        private long getSizeInBytes() {
+            return bits != null ? (long) bits.length * Long.BYTES : (long) values.length * Character.BYTES;
+        }
+
+        /**
+         * Converts the container from a sorted array to a bitmap.
+         */
+        private void toBitmap() {
+            bits = new long[BITMAP_WORDS];
+            for (int i = 0; i < count; i++) {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        /**
+         * Converts the container from a bitmap to a sorted array.
+         */
+        private void toArray() {
+            values = new char[Math.max(INITIAL_VALUES, count)];
+            int index = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = bits[w];
+                while (word != 0) {
+                    values[index++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            bits = null;
+        }
+
+        /**
+         * Creates an independent copy of the container.
+         *
+         * @return The copy
+         */
+        private Container copy() {
+            Container result = new Container();
+            result.count = count;
+            if (bits != null) {
+                result.bits = bits.clone();
+                result.values = null;
+            } else {
+                result.values = values.clone();
+            }
+            return result;
+        }
+
+        /**
+         * Merges two containers, keeping the array form while the result stays small.
+         *
+         * @param a The first container
+         * @param b The second container
+         * @return A new container with the values of both
+         */
+        private static Container union(Container a, Container b) {
+            Container result = new Container();
+            if (a.bits == null && b.bits == null && a.count + b.count <= ARRAY_LIMIT) {
+                result.values = new char[Math.max(INITIAL_VALUES, a.count + b.count)];
+                int i = 0;
+                int j = 0;
+                while (i < a.count || j < b.count) {
+                    char next;
+                    if (j == b.count || (i < a.count && a.values[i] < b.values[j])) {
+                        next = a.values[i++];
+                    } else if (i == a.count || b.values[j] < a.values[i]) {
+                        next = b.values[j++];
+                    } else {
+                        next = a.values[i++];
+                        j++;
+                    }
+                    result.values[result.count++] = next;
+                }
+                return result;
+            }
+            result.bits = new long[BITMAP_WORDS];
+            result.values = null;
+            a.orInto(result.bits);
+            b.orInto(result.bits);
+            for (long word : result.bits) {
+                result.count += Long.bitCount(word);
+            }
+            if (result.count <= ARRAY_LIMIT) {
+                result.toArray();
+            }
+            return result;
+        }
+
+        /**
+         * Intersects two containers. When one of them is an array, only its values
+         * are probed against the other.
+         *
+         * @param a The first container
+         * @param b The second container
+         * @return A new container with the values present in both
+         */
+        private static Container intersection(Container a, Container b) {
+            Container result = new Container();
+            if (a.bits != null && b.bits != null) {
+                result.bits = new long[BITMAP_WORDS];
+                result.values = null;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    result.bits[w] = a.bits[w] & b.bits[w];
+                    result.count += Long.bitCount(result.bits[w]);
+                }
+                if (result.count <= ARRAY_LIMIT) {
+                    result.toArray();
+                }
+                return result;
+            }
+            Container small = a.bits == null ? a : b;
+            Container other = small == a ? b : a;
+            result.values = new char[Math.max(INITIAL_VALUES, small.count)];
+            for (int i = 0; i < small.count; i++) {
+                if (other.contains(small.values[i])) {
+                    result.values[result.count++] = small.values[i];
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Sets the bits of all values of this container in a bitmap.
+         *
+         * @param target The bitmap to update
+         */
+        private void orInto(long[] target) {
+            if (bits != null) {
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    target[w] |= bits[w];
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    target[values[i] >>> 6] |= 1L << values[i];
+                }
+            }
+        }
+    }
+}
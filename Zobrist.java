@@ -0,0 +1,62 @@
+/**
+ * @author Danylo Zhdanov 68514 and Gilhereme Santos 65443
+ * Zobrist-style keys for hashing game states. Instead of tables of random numbers, which
+ * would need one entry per cell and content, every key is derived on demand by mixing its
+ * inputs with the SplitMix64 finalizer, so keys cost no memory even on huge boards.
+ * The hash of a state is the XOR of the keys of its parts, so a part that changes is
+ * updated by XOR-ing its old key out and its new key in.
+ */
+
+public class Zobrist {
+    private static final long CELL_SALT = 0x2545F4914F6CDD1DL;
+    private static final long PLAYER_SALT = 0x9E3779B97F4A7C15L;
+    private static final long TURN_SALT = 0xD1B54A32D192ED03L;
+
+    /**
+     * Gets the key of a cell that was cleared during the game. Cells still holding their
+     * initial content contribute nothing, so hashes compare states on the same map.
+     *
+     * @param cell The cell index
+     * @return The key of the cleared cell
+     */
+    public static long clearedCellKey(long cell) {
+        return mix(CELL_SALT + cell);
+    }
+
+    /**
+     * Gets the key of the state of a player: position, shield and elimination.
+     *
+     * @param slot The index of the player in the game
+     * @param cell The cell index of the player's position
+     * @param player The player
+     * @return The key of the player's state
+     */
+    public static long playerKey(int slot, long cell, Player player) {
+        long status = ((long) player.getShieldDuration() << 2)
+                | (player.isProtected() ? 2 : 0)
+                | (player.isEliminated() ? 1 : 0);
+        return mix(mix(mix(PLAYER_SALT + slot) + cell) + status);
+    }
+
+    /**
+     * Gets the key of the index of the player whose turn it is.
+     *
+     * @param playerIndex The index of the current player
+     * @return The key of the turn
+     */
+    public static long turnKey(int playerIndex) {
+        return mix(TURN_SALT + playerIndex);
+    }
+
+    /**
+     * Scrambles a value with the SplitMix64 finalizer.
+     *
+     * @param value The value to scramble
+     * @return A well-distributed 64-bit value
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}